@@ -0,0 +1,48 @@
+import factory.Factory;
+
+public class FactoryBenchmark {
+
+	private static final String CLASSNAME = "listfactory.ListFactory";
+	private static final int ITERATIONS = 10_000_000;
+
+	public static void main(String[] args) throws Exception {
+		// ウォームアップ
+		for (int i = 0; i < 5; i++) {
+			reflective(ITERATIONS / 10);
+			cached(ITERATIONS / 10);
+		}
+		System.out.println("reflective : " + reflective(ITERATIONS) / ITERATIONS + " ns/op");
+		System.out.println("cached     : " + cached(ITERATIONS) / ITERATIONS + " ns/op");
+	}
+
+	// 従来の Class.forName(...).newInstance() による生成
+	@SuppressWarnings("deprecation")
+	private static long reflective(int times) throws Exception {
+		long start = System.nanoTime();
+		int sink = 0;
+		for (int i = 0; i < times; i++) {
+			Factory factory = (Factory) Class.forName(CLASSNAME).newInstance();
+			sink += factory.hashCode() & 1;
+		}
+		consume(sink);
+		return System.nanoTime() - start;
+	}
+
+	// キャッシュされたSupplierによる生成
+	private static long cached(int times) {
+		long start = System.nanoTime();
+		int sink = 0;
+		for (int i = 0; i < times; i++) {
+			Factory factory = Factory.getFactory(CLASSNAME);
+			sink += factory.hashCode() & 1;
+		}
+		consume(sink);
+		return System.nanoTime() - start;
+	}
+
+	private static void consume(int value) {
+		if (value == -1) {
+			System.out.println(value);
+		}
+	}
+}
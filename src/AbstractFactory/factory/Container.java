@@ -0,0 +1,6 @@
+package factory;
+
+// 子要素の変更を通知される入れ物（TrayとPage）
+interface Container {
+	public abstract void invalidate();
+}
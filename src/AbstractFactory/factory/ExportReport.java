@@ -0,0 +1,88 @@
+package factory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 一括出力の結果
+public class ExportReport {
+
+	private final List<Entry> entries;
+	private final long elapsedNanos;
+
+	ExportReport(List<Entry> entries, long elapsedNanos) {
+		this.entries = Collections.unmodifiableList(entries);
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public List<Entry> getFailures() {
+		List<Entry> failures = new ArrayList<>();
+		for (Entry entry : entries) {
+			if (!entry.isSucceeded()) {
+				failures.add(entry);
+			}
+		}
+		return failures;
+	}
+
+	public String toString() {
+		return "[ExportReport pages=" + entries.size() + " failures=" + getFailures().size() + " elapsed=" + elapsedNanos / 1_000_000 + "ms]";
+	}
+
+	// ページ1枚分の結果
+	public static class Entry {
+		private final Path path;
+		long bytes;
+		long renderNanos;
+		long writeNanos;
+		// 同じ回にまとめてfsyncしたファイル全体の所要時間（1ページ分ではない）
+		long batchSyncNanos;
+		Throwable error;
+
+		Entry(Path path) {
+			this.path = path;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getRenderNanos() {
+			return renderNanos;
+		}
+
+		public long getWriteNanos() {
+			return writeNanos;
+		}
+
+		// このページを含むfsync1回分の所要時間
+		public long getBatchSyncNanos() {
+			return batchSyncNanos;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+
+		public boolean isSucceeded() {
+			return error == null;
+		}
+
+		public String toString() {
+			return "[" + path + (error == null ? " " + bytes + " bytes" : " " + error) + "]";
+		}
+	}
+}
@@ -1,5 +1,16 @@
 package factory;
 
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
 public abstract class Factory {
 
 	public abstract Link createLink(String caption, String url);
@@ -9,7 +20,7 @@ public abstract class Factory {
 	public static Factory getFactory(String classname) {
 		Factory factory = null;
 		try {
-			factory = (Factory) Class.forName(classname).newInstance();
+			factory = Registry.lookup(classname).get();
 		} catch (ClassNotFoundException e) {
 			System.err.println("クラス " + classname + " が見つかりません。");
 		} catch (Exception e) {
@@ -17,4 +28,79 @@ public abstract class Factory {
 		}
 		return factory;
 	}
+
+	// 生成方法を明示的に登録
+	public static void register(String classname, Supplier<? extends Factory> supplier) {
+		Registry.suppliers.put(classname, supplier);
+	}
+
+	// クラス名から生成方法を解決してキャッシュする
+	private static class Registry {
+		private static final ConcurrentHashMap<String, Supplier<? extends Factory>> suppliers = new ConcurrentHashMap<>();
+
+		// ServiceLoaderで見つかった実装を事前に登録
+		// 設定の誤りや読み込めない実装はその1件だけ飛ばし、クラス名からの解決は使えるようにしておく
+		static {
+			Iterator<ServiceLoader.Provider<Factory>> providers = ServiceLoader.load(Factory.class).stream().iterator();
+			while (true) {
+				Class<? extends Factory> type;
+				try {
+					if (!providers.hasNext()) {
+						break;
+					}
+					type = providers.next().type();
+				} catch (ServiceConfigurationError e) {
+					// 次の呼び出しでは次の実装へ進む
+					e.printStackTrace();
+					continue;
+				}
+				try {
+					suppliers.putIfAbsent(type.getName(), resolve(type));
+				} catch (Exception | LinkageError e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		static Supplier<? extends Factory> lookup(String classname) throws Exception {
+			Supplier<? extends Factory> supplier = suppliers.get(classname);
+			if (supplier == null) {
+				Class<?> type = Class.forName(classname);
+				if (!Factory.class.isAssignableFrom(type)) {
+					throw new ClassCastException(classname + " は Factory ではありません。");
+				}
+				Supplier<? extends Factory> resolved = resolve(type.asSubclass(Factory.class));
+				supplier = suppliers.putIfAbsent(classname, resolved);
+				if (supplier == null) {
+					supplier = resolved;
+				}
+			}
+			return supplier;
+		}
+
+		// 引数なしコンストラクタを直接呼ぶSupplierを生成
+		// リンク・リフレクションの失敗は例外に包み、それ以外の実行時例外・Errorはそのまま伝える
+		@SuppressWarnings("unchecked")
+		private static Supplier<? extends Factory> resolve(Class<? extends Factory> type) throws Exception {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class));
+			MethodHandle factory = LambdaMetafactory.metafactory(
+					lookup,
+					"get",
+					MethodType.methodType(Supplier.class),
+					MethodType.methodType(Object.class),
+					constructor,
+					MethodType.methodType(type)).getTarget();
+			try {
+				return (Supplier<? extends Factory>) factory.invokeExact();
+			} catch (LinkageError | ReflectiveOperationException e) {
+				throw new IllegalStateException(type.getName() + " の生成方法を用意できません。", e);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				// 引数なしコンストラクタの呼び出しを返すだけなので、ここには来ない
+				throw new UndeclaredThrowableException(e);
+			}
+		}
+	}
 }
@@ -0,0 +1,25 @@
+package factory;
+
+// 描画結果をキャッシュしながら組み立てるための出力先
+final class Fragment implements Appendable {
+	private final StringBuilder buffer = new StringBuilder();
+
+	public Appendable append(CharSequence csq) {
+		buffer.append(csq);
+		return this;
+	}
+
+	public Appendable append(CharSequence csq, int start, int end) {
+		buffer.append(csq, start, end);
+		return this;
+	}
+
+	public Appendable append(char c) {
+		buffer.append(c);
+		return this;
+	}
+
+	public String toString() {
+		return buffer.toString();
+	}
+}
@@ -1,11 +1,119 @@
 package factory;
 
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
 public abstract class Item {
+	private static final WeakReference<?>[] NO_CONTAINERS = new WeakReference<?>[0];
+
 	protected String caption;
+	// 描画済みの断片（未描画または変更後はnull）
+	private volatile String fragment;
+	// この要素を含むTrayやPage（弱参照なので、共有された要素が使い終わったPageを残し続けない）
+	private WeakReference<?>[] containers = NO_CONTAINERS;
 
 	public Item(String caption) {
 		this.caption = caption;
 	}
 
-	public abstract String makeHTML();
+	// HTMLを文字列として生成（キャッシュがあればそれを使うが、新たにはキャッシュしない）
+	public String makeHTML() {
+		String cached = fragment;
+		if (cached != null) {
+			return cached;
+		}
+		StringBuilder buffer = new StringBuilder();
+		try {
+			render(buffer);
+		} catch (IOException e) {
+			// StringBuilderへの追記では発生しない
+			throw new IllegalStateException(e);
+		}
+		return buffer.toString();
+	}
+
+	// HTMLを文字列として生成し、結果をキャッシュする（差分描画用）
+	public String makeCachedHTML() {
+		String cached = fragment;
+		if (cached == null) {
+			Fragment buffer = new Fragment();
+			try {
+				render(buffer);
+			} catch (IOException e) {
+				// Fragmentへの追記では発生しない
+				throw new IllegalStateException(e);
+			}
+			cached = buffer.toString();
+			fragment = cached;
+		}
+		return cached;
+	}
+
+	// HTMLを出力先へ直接書き込む（キャッシュがあればそれを使う）
+	public final void makeHTML(Appendable out) throws IOException {
+		String cached = fragment;
+		if (cached != null) {
+			out.append(cached);
+		} else if (out instanceof Fragment) {
+			out.append(makeCachedHTML());
+		} else {
+			render(out);
+		}
+	}
+
+	public boolean isCached() {
+		return fragment != null;
+	}
+
+	// キャッシュを破棄し、含んでいる側へも伝える
+	public void invalidate() {
+		fragment = null;
+		WeakReference<?>[] current = containers;
+		boolean cleared = false;
+		for (int i = 0; i < current.length; i++) {
+			Container container = (Container) current[i].get();
+			if (container != null) {
+				container.invalidate();
+			} else {
+				cleared = true;
+			}
+		}
+		if (cleared) {
+			containers = live(current, 0);
+		}
+	}
+
+	// 外部で組み立てた描画結果をキャッシュとして登録する
+	protected final void setCachedHTML(String html) {
+		fragment = html;
+	}
+
+	void addContainer(Container container) {
+		WeakReference<?>[] current = containers;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i].get() == container) {
+				return;
+			}
+		}
+		// 回収済みの参照を除いてから追加する
+		WeakReference<?>[] grown = live(current, 1);
+		grown[grown.length - 1] = new WeakReference<>(container);
+		containers = grown;
+	}
+
+	// まだ回収されていない参照だけを写し、後ろにextra個の空きを加えた配列を返す
+	private static WeakReference<?>[] live(WeakReference<?>[] references, int extra) {
+		WeakReference<?>[] result = new WeakReference<?>[references.length + extra];
+		int n = 0;
+		for (int i = 0; i < references.length; i++) {
+			if (references[i].get() != null) {
+				result[n++] = references[i];
+			}
+		}
+		return n == references.length ? result : Arrays.copyOf(result, n + extra);
+	}
+
+	// HTMLの描画
+	protected abstract void render(Appendable out) throws IOException;
 }
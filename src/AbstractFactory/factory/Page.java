@@ -1,13 +1,28 @@
 package factory;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 
-public abstract class Page {
+public abstract class Page implements Container {
+	// 出力バッファのサイズ
+	private static final int BUFFER_SIZE = 64 * 1024;
+
 	protected String title;
 	protected ArrayList content = new ArrayList();
+	// 出力時の文字コード
+	protected Charset charset = StandardCharsets.UTF_8;
+	// 描画結果をキャッシュして差分だけ描き直すかどうか
+	private boolean incremental;
+	// 描画済みの文書（未描画または変更後はnull）
+	private volatile String fragment;
 
 	public Page(String title) {
 		this.title = title;
@@ -15,19 +30,95 @@ public abstract class Page {
 
 	public void add(Item item) {
 		content.add(item);
+		item.addContainer(this);
+		invalidate();
+	}
+
+	public void invalidate() {
+		fragment = null;
+	}
+
+	public void setCharset(Charset charset) {
+		this.charset = charset;
+	}
+
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	public String getFileName() {
+		return title + ".html";
 	}
 
 	public void output() {
 		try {
-			String filename = title + ".html";
-			Writer writer = new FileWriter(filename);
-			writer.write(this.makeHTML());
-			writer.close();
+			String filename = getFileName();
+			try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), charset), BUFFER_SIZE)) {
+				makeHTML(writer);
+			}
 			System.out.println(filename + " を作成しました。");
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
-	public abstract String makeHTML();
+	// Writerへ出力（クローズは呼び出し側）
+	public void output(Writer writer) throws IOException {
+		Writer buffered = new BufferedWriter(writer, BUFFER_SIZE);
+		makeHTML(buffered);
+		buffered.flush();
+	}
+
+	// チャネルへ出力（クローズは呼び出し側）
+	public void output(WritableByteChannel channel) throws IOException {
+		Writer writer = Channels.newWriter(channel, charset.newEncoder(), BUFFER_SIZE);
+		makeHTML(writer);
+		writer.flush();
+	}
+
+	// HTMLを文字列として生成（差分描画が有効なときだけ結果をキャッシュする）
+	public String makeHTML() {
+		String cached = fragment;
+		if (cached == null && !incremental) {
+			StringBuilder buffer = new StringBuilder();
+			try {
+				render(buffer);
+			} catch (IOException e) {
+				// StringBuilderへの追記では発生しない
+				throw new IllegalStateException(e);
+			}
+			return buffer.toString();
+		}
+		if (cached == null) {
+			Fragment buffer = new Fragment();
+			try {
+				render(buffer);
+			} catch (IOException e) {
+				// Fragmentへの追記では発生しない
+				throw new IllegalStateException(e);
+			}
+			cached = buffer.toString();
+			fragment = cached;
+		}
+		return cached;
+	}
+
+	// HTMLを出力先へ直接書き込む
+	public final void makeHTML(Appendable out) throws IOException {
+		String cached = fragment;
+		if (cached != null) {
+			out.append(cached);
+		} else if (incremental) {
+			out.append(makeHTML());
+		} else {
+			render(out);
+		}
+	}
+
+	// HTMLの描画
+	protected abstract void render(Appendable out) throws IOException;
 }
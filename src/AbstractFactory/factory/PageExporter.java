@@ -0,0 +1,195 @@
+package factory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// 多数のPageをまとめてファイルへ出力する
+public class PageExporter {
+
+	// 出力先ディレクトリ
+	private Path directory = Paths.get(".");
+	// 同時に描画・保持するページ数の上限
+	private int concurrency = 64;
+	// 書き込みを担当するスレッド数
+	private int ioWorkers = 2;
+	// まとめてfsyncするファイル数
+	private int syncBatch = 32;
+
+	public void setDirectory(Path directory) {
+		this.directory = directory;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = Math.max(1, concurrency);
+	}
+
+	public void setIoWorkers(int ioWorkers) {
+		this.ioWorkers = Math.max(1, ioWorkers);
+	}
+
+	public void setSyncBatch(int syncBatch) {
+		this.syncBatch = Math.max(1, syncBatch);
+	}
+
+	public ExportReport export(Collection<? extends Page> pages) throws InterruptedException {
+		long start = System.nanoTime();
+		ExportReport.Entry[] entries = new ExportReport.Entry[pages.size()];
+		Semaphore inFlight = new Semaphore(concurrency);
+		CountDownLatch written = new CountDownLatch(pages.size());
+		IoWorker[] workers = new IoWorker[ioWorkers];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new IoWorker();
+		}
+		ExecutorService renderers = newRenderExecutor();
+		try {
+			int index = 0;
+			for (Page page : pages) {
+				inFlight.acquire();
+				ExportReport.Entry entry = new ExportReport.Entry(directory.resolve(page.getFileName()));
+				entries[index] = entry;
+				IoWorker worker = workers[index % workers.length];
+				index++;
+				renderers.execute(() -> {
+					long begin = System.nanoTime();
+					Buffer buffer = new Buffer();
+					try {
+						page.output(Channels.newChannel(buffer));
+					} catch (Throwable e) {
+						entry.error = e;
+						inFlight.release();
+						written.countDown();
+						return;
+					}
+					entry.renderNanos = System.nanoTime() - begin;
+					worker.write(entry, buffer, inFlight, written);
+				});
+			}
+			written.await();
+		} finally {
+			renderers.shutdown();
+			for (int i = 0; i < workers.length; i++) {
+				workers[i].close();
+			}
+		}
+		return new ExportReport(new ArrayList<>(Arrays.asList(entries)), System.nanoTime() - start);
+	}
+
+	// 仮想スレッドが使えればそれを、なければ固定数のスレッドを使う
+	private ExecutorService newRenderExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(Math.min(concurrency, Runtime.getRuntime().availableProcessors()));
+		}
+	}
+
+	// 描画結果を保持するバッファ（コピーせずに書き出す）
+	private static class Buffer extends ByteArrayOutputStream {
+		Buffer() {
+			super(8 * 1024);
+		}
+
+		ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+
+	// 書き込みとfsyncのまとめ処理を担当するスレッド
+	private class IoWorker {
+		private final ExecutorService executor = Executors.newSingleThreadExecutor();
+		// 書き込み済みでfsync待ちのファイル
+		private final List<FileChannel> channels = new ArrayList<>();
+		private final List<ExportReport.Entry> pending = new ArrayList<>();
+
+		void write(ExportReport.Entry entry, Buffer buffer, Semaphore inFlight, CountDownLatch written) {
+			executor.execute(() -> {
+				long begin = System.nanoTime();
+				FileChannel channel = null;
+				try {
+					channel = FileChannel.open(entry.getPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+					ByteBuffer bytes = buffer.toByteBuffer();
+					entry.bytes = bytes.remaining();
+					while (bytes.hasRemaining()) {
+						channel.write(bytes);
+					}
+					entry.writeNanos = System.nanoTime() - begin;
+					channels.add(channel);
+					pending.add(entry);
+					if (channels.size() >= syncBatch) {
+						sync();
+					}
+				} catch (Throwable e) {
+					entry.error = e;
+					closeQuietly(channel);
+				} finally {
+					inFlight.release();
+					written.countDown();
+				}
+			});
+		}
+
+		// まとめてfsyncしてクローズ（失敗はそのファイルのEntryにだけ記録する）
+		private void sync() {
+			long begin = System.nanoTime();
+			for (int i = 0; i < channels.size(); i++) {
+				FileChannel channel = channels.get(i);
+				try {
+					channel.force(false);
+				} catch (Throwable e) {
+					ExportReport.Entry entry = pending.get(i);
+					if (entry.error == null) {
+						entry.error = e;
+					}
+				} finally {
+					closeQuietly(channel);
+				}
+			}
+			long elapsed = System.nanoTime() - begin;
+			for (ExportReport.Entry entry : pending) {
+				entry.batchSyncNanos = elapsed;
+			}
+			channels.clear();
+			pending.clear();
+		}
+
+		void close() throws InterruptedException {
+			Future<?> flushed = executor.submit(this::sync);
+			executor.shutdown();
+			try {
+				flushed.get();
+			} catch (ExecutionException e) {
+				// sync内の例外は各Entryに記録済み
+			}
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+
+		private void closeQuietly(FileChannel channel) {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					// クローズの失敗は無視
+				}
+			}
+		}
+	}
+}
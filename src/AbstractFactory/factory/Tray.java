@@ -2,7 +2,7 @@ package factory;
 
 import java.util.ArrayList;
 
-public abstract class Tray extends Item {
+public abstract class Tray extends Item implements Container {
 	protected ArrayList tray = new ArrayList();
 
 	public Tray(String caption) {
@@ -11,5 +11,7 @@ public abstract class Tray extends Item {
 
 	public void add(Item item) {
 		tray.add(item);
+		item.addContainer(this);
+		invalidate();
 	}
 }
@@ -1,5 +1,7 @@
 package listfactory;
 
+import java.io.IOException;
+
 import factory.Link;
 
 public class ListLink extends Link {
@@ -7,7 +9,7 @@ public class ListLink extends Link {
 		super(caption, url);
 	}
 
-	public String makeHTML() {
-		return "  <li><a href=\"" + url + "\">" + caption + "</a></li>\n";
+	protected void render(Appendable out) throws IOException {
+		out.append("  <li><a href=\"").append(url).append("\">").append(caption).append("</a></li>\n");
 	}
 }
@@ -1,28 +1,38 @@
 package listfactory;
 
+import java.io.IOException;
 import java.util.Iterator;
 
 import factory.Item;
 import factory.Page;
 
 public class ListPage extends Page {
+	// 並列に描画するかどうか
+	private boolean parallel;
+
 	public ListPage(String title) {
 		super(title);
 	}
 
-	public String makeHTML() {
-		StringBuffer buffer = new StringBuffer();
-		buffer.append("<html><head><title>" + title + "</title></head>\n");
-		buffer.append("<body>\n");
-		buffer.append("<h1>" + title + "</h1>\n");
-		buffer.append("<ul>\n");
-		Iterator it = content.iterator();
-		while (it.hasNext()) {
-			Item item = (Item) it.next();
-			buffer.append(item.makeHTML());
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	protected void render(Appendable out) throws IOException {
+		out.append("<html><head><title>").append(title).append("</title></head>\n");
+		out.append("<body>\n");
+		out.append("<h1>").append(title).append("</h1>\n");
+		out.append("<ul>\n");
+		if (parallel && ListRenderTask.isLarge(content)) {
+			ListRenderTask.render(content, out, isIncremental());
+		} else {
+			Iterator it = content.iterator();
+			while (it.hasNext()) {
+				Item item = (Item) it.next();
+				item.makeHTML(out);
+			}
 		}
-		buffer.append("</ul>\n");
-		buffer.append("</body></html>\n");
-		return buffer.toString();
+		out.append("</ul>\n");
+		out.append("</body></html>\n");
 	}
 }
@@ -0,0 +1,115 @@
+package listfactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import factory.Item;
+
+// 要素の範囲を分割して並列に描画し、断片を文書順に連結するタスク
+class ListRenderTask extends RecursiveTask<StringBuilder> {
+
+	private static final long serialVersionUID = 1L;
+
+	// この要素数以下の範囲は逐次に描画
+	static final int THRESHOLD = 256;
+
+	private final List<?> items;
+	private final int from;
+	private final int to;
+	// 各要素の描画結果をキャッシュに残すかどうか
+	private final boolean memoize;
+
+	ListRenderTask(List<?> items, int from, int to, boolean memoize) {
+		this.items = items;
+		this.from = from;
+		this.to = to;
+		this.memoize = memoize;
+	}
+
+	// 並列化に見合う大きさかどうか（閾値に達した時点で打ち切る）
+	static boolean isLarge(List<?> items) {
+		return count(items, THRESHOLD) >= THRESHOLD;
+	}
+
+	private static int count(List<?> items, int limit) {
+		int count = items.size();
+		for (int i = 0; i < items.size() && count < limit; i++) {
+			Object item = items.get(i);
+			if (item instanceof ListTray) {
+				count += count(((ListTray) item).items(), limit - count);
+			}
+		}
+		return count;
+	}
+
+	// 先頭から順に断片を書き出す。同時に保持する断片の数は一定に抑える
+	static void render(List<?> items, Appendable out, boolean memoize) throws IOException {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int parallelism = pool.getParallelism();
+		int step = Math.max(1, (items.size() + parallelism * 8 - 1) / (parallelism * 8));
+		ArrayDeque<ForkJoinTask<StringBuilder>> window = new ArrayDeque<>();
+		for (int from = 0; from < items.size(); from += step) {
+			if (window.size() == parallelism * 2) {
+				out.append(join(window.poll()));
+			}
+			window.add(pool.submit(new ListRenderTask(items, from, Math.min(items.size(), from + step), memoize)));
+		}
+		while (!window.isEmpty()) {
+			out.append(join(window.poll()));
+		}
+	}
+
+	private static StringBuilder join(ForkJoinTask<StringBuilder> task) throws IOException {
+		try {
+			return task.join();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	protected StringBuilder compute() {
+		StringBuilder buffer = new StringBuilder();
+		try {
+			render(buffer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return buffer;
+	}
+
+	private void render(StringBuilder buffer) throws IOException {
+		if (to - from > THRESHOLD) {
+			int middle = (from + to) >>> 1;
+			ListRenderTask left = new ListRenderTask(items, from, middle, memoize);
+			ListRenderTask right = new ListRenderTask(items, middle, to, memoize);
+			right.fork();
+			buffer.append(left.compute());
+			buffer.append(right.join());
+			return;
+		}
+		for (int i = from; i < to; i++) {
+			Item item = (Item) items.get(i);
+			if (item instanceof ListTray && !item.isCached() && ((ListTray) item).items().size() > THRESHOLD) {
+				// 幅の広いトレイは子要素をさらに分割
+				ListTray tray = (ListTray) item;
+				StringBuilder html = memoize ? new StringBuilder() : buffer;
+				tray.appendOpen(html);
+				html.append(new ListRenderTask(tray.items(), 0, tray.items().size(), memoize).compute());
+				tray.appendClose(html);
+				if (memoize) {
+					tray.remember(html.toString());
+					buffer.append(html);
+				}
+			} else if (memoize) {
+				buffer.append(item.makeCachedHTML());
+			} else {
+				item.makeHTML(buffer);
+			}
+		}
+	}
+}
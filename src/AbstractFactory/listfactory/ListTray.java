@@ -1,6 +1,8 @@
 package listfactory;
 
+import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 
 import factory.Item;
 import factory.Tray;
@@ -10,18 +12,35 @@ public class ListTray extends Tray {
 		super(caption);
 	}
 
-	public String makeHTML() {
-		StringBuffer buffer = new StringBuffer();
-		buffer.append("<li>\n");
-		buffer.append(caption + "\n");
-		buffer.append("<ul>\n");
+	protected void render(Appendable out) throws IOException {
+		appendOpen(out);
 		Iterator it = tray.iterator();
 		while (it.hasNext()) {
 			Item item = (Item) it.next();
-			buffer.append(item.makeHTML());
+			item.makeHTML(out);
 		}
-		buffer.append("</ul>\n");
-		buffer.append("</li>\n");
-		return buffer.toString();
+		appendClose(out);
+	}
+
+	// 子要素の前までを出力
+	void appendOpen(Appendable out) throws IOException {
+		out.append("<li>\n");
+		out.append(caption).append('\n');
+		out.append("<ul>\n");
+	}
+
+	// 子要素の後ろを出力
+	void appendClose(Appendable out) throws IOException {
+		out.append("</ul>\n");
+		out.append("</li>\n");
+	}
+
+	List<?> items() {
+		return tray;
+	}
+
+	// 分割して描画した結果をキャッシュとして登録
+	void remember(String html) {
+		setCachedHTML(html);
 	}
 }
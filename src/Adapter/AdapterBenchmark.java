@@ -0,0 +1,51 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+public class AdapterBenchmark {
+
+	private static final int ITERATIONS = 5_000_000;
+
+	public static void main(String[] args) throws Exception {
+		Human human = new Human("田中", 25);
+
+		Student handWritten = new HumanAdapter("田中", 25);
+
+		Map<String, String> mapping = new HashMap<>();
+		mapping.put("showName", "printName");
+		mapping.put("showAge", "printAge");
+		Student generated = AdapterGenerator.generate(human, mapping);
+
+		Method printName = Human.class.getMethod("printName");
+		Method printAge = Human.class.getMethod("printAge");
+		Student proxy = (Student) Proxy.newProxyInstance(Student.class.getClassLoader(), new Class<?>[] { Student.class },
+				(p, method, a) -> (method.getName().equals("showName") ? printName : printAge).invoke(human));
+
+		// 出力のコストを除くため標準出力を捨てる
+		PrintStream console = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		long[] results = new long[3];
+		for (int round = 0; round < 5; round++) {
+			results[0] = run(handWritten);
+			results[1] = run(generated);
+			results[2] = run(proxy);
+		}
+		System.setOut(console);
+
+		System.out.println("hand-written : " + results[0] / ITERATIONS + " ns/op");
+		System.out.println("generated    : " + results[1] / ITERATIONS + " ns/op");
+		System.out.println("proxy        : " + results[2] / ITERATIONS + " ns/op");
+	}
+
+	private static long run(Student student) {
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			student.showName();
+			student.showAge();
+		}
+		return System.nanoTime() - start;
+	}
+}
@@ -0,0 +1,98 @@
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 対応表（例: showName -> printName）からStudentのAdapterを実行時に生成する
+public class AdapterGenerator {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+	// (Adapteeのクラス, メソッド名) ごとに生成したRunnableのファクトリ
+	private static final ConcurrentHashMap<Key, MethodHandle> factories = new ConcurrentHashMap<>();
+
+	public static Student generate(Object adaptee, Map<String, String> mapping) {
+		for (String name : mapping.keySet()) {
+			if (!name.equals("showName") && !name.equals("showAge")) {
+				throw new IllegalArgumentException("Student に " + name + " はありません。");
+			}
+		}
+		return new GeneratedStudent(bind(adaptee, mapping.get("showName")), bind(adaptee, mapping.get("showAge")));
+	}
+
+	// adaptee.method() を直接呼び出すRunnableを作る
+	private static Runnable bind(Object adaptee, String method) {
+		if (method == null) {
+			throw new IllegalArgumentException("対応するメソッドが指定されていません。");
+		}
+		Key key = new Key(adaptee.getClass(), method);
+		MethodHandle factory = factories.get(key);
+		if (factory == null) {
+			factory = factories.computeIfAbsent(key, AdapterGenerator::compile);
+		}
+		try {
+			return (Runnable) factory.invoke(adaptee);
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static MethodHandle compile(Key key) {
+		try {
+			MethodHandle target = LOOKUP.findVirtual(key.type, key.method, MethodType.methodType(void.class));
+			return LambdaMetafactory.metafactory(
+					LOOKUP,
+					"run",
+					MethodType.methodType(Runnable.class, key.type),
+					MethodType.methodType(void.class),
+					target,
+					MethodType.methodType(void.class)).getTarget();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException(key.type.getName() + "." + key.method + "() を呼び出せません。", e);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class GeneratedStudent implements Student {
+		private final Runnable showName;
+		private final Runnable showAge;
+
+		GeneratedStudent(Runnable showName, Runnable showAge) {
+			this.showName = showName;
+			this.showAge = showAge;
+		}
+
+		public void showName() {
+			showName.run();
+		}
+
+		public void showAge() {
+			showAge.run();
+		}
+	}
+
+	private static class Key {
+		private final Class<?> type;
+		private final String method;
+
+		Key(Class<?> type, String method) {
+			this.type = type;
+			this.method = method;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return type == other.type && method.equals(other.method);
+		}
+
+		public int hashCode() {
+			return Objects.hash(type, method);
+		}
+	}
+}
@@ -3,7 +3,7 @@ public class HumanAdapter implements Student {
 	private Human human;
 
 	public HumanAdapter(String name, int age) {
-		this.human = new Human("田中", 25);;
+		this.human = new Human(name, age);
     }
 
 	public void showName() {
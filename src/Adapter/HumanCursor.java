@@ -0,0 +1,100 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// 付け替え可能なAdapter。1つのインスタンスを次々と別のレコードへ向け直して使う
+// HumanとHumanTableのどちらを指していても、表示は同じ出力先へ順に書かれ、flush() まで溜められる
+// 単一スレッド専用。スレッドごとに使う場合は current() を使う
+public class HumanCursor implements Student {
+
+	private static final ThreadLocal<HumanCursor> CURRENT = ThreadLocal.withInitial(HumanCursor::new);
+	// Humanは標準出力にしか表示できないので、出力先へ書くためにフィールドを直接読む
+	private static final VarHandle NAME;
+	private static final VarHandle AGE;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(Human.class, MethodHandles.lookup());
+			NAME = lookup.findVarHandle(Human.class, "name", String.class);
+			AGE = lookup.findVarHandle(Human.class, "age", int.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	// Humanを指している場合
+	private Human human;
+	// HumanTableの行を指している場合
+	private HumanTable table;
+	private int row;
+	// 行を表示するときの出力先
+	private Writer out;
+	// 年齢を文字にする作業領域（インスタンスごと。current() ならスレッドごと）
+	private final char[] digits = new char[HumanTable.DIGITS_LENGTH];
+
+	public HumanCursor() {
+		this(new BufferedWriter(new OutputStreamWriter(System.out), 8 * 1024));
+	}
+
+	public HumanCursor(Writer out) {
+		this.out = out;
+	}
+
+	// 呼び出したスレッド専用のカーソル（標準出力へ書く）
+	// スレッドの終了時に自動では書き出されないので、使い終わったら同じスレッドで flush() を呼ぶこと
+	public static HumanCursor current() {
+		return CURRENT.get();
+	}
+
+	public HumanCursor bind(Human human) {
+		this.human = human;
+		this.table = null;
+		return this;
+	}
+
+	public HumanCursor bind(HumanTable table, int row) {
+		this.human = null;
+		this.table = table;
+		this.row = row;
+		return this;
+	}
+
+	public void showName() {
+		try {
+			if (human != null) {
+				out.write((String) NAME.get(human));
+				out.write(System.lineSeparator());
+			} else {
+				table.printName(row, out);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void showAge() {
+		try {
+			if (human != null) {
+				HumanTable.printInt((int) AGE.get(human), digits, out);
+				out.write(System.lineSeparator());
+			} else {
+				table.printAge(row, out, digits);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// 行の表示はバッファされるので、区切りのよいところで呼ぶ
+	public void flush() {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
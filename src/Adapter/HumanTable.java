@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// 多数のHumanを列ごとにまとめて保持する
+public class HumanTable {
+
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	// intを10進で書くのに必要な文字数（符号を含む）
+	static final int DIGITS_LENGTH = 11;
+	private static final ThreadLocal<char[]> DIGITS = ThreadLocal.withInitial(() -> new char[DIGITS_LENGTH]);
+
+	// 名前の一覧（同じ名前は1つだけ保持）
+	private String[] namePool = new String[16];
+	private int poolSize;
+	private HashMap<String, Integer> poolIndex = new HashMap<>();
+	// 各行の名前番号と年齢
+	private int[] names = new int[16];
+	private int[] ages = new int[16];
+	private int size;
+
+	public int add(String name, int age) {
+		if (size == ages.length) {
+			names = Arrays.copyOf(names, size * 2);
+			ages = Arrays.copyOf(ages, size * 2);
+		}
+		names[size] = intern(name);
+		ages[size] = age;
+		return size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String getName(int row) {
+		return namePool[names[row]];
+	}
+
+	public int getAge(int row) {
+		return ages[row];
+	}
+
+	public void printName(int row, Writer out) throws IOException {
+		out.write(namePool[names[row]]);
+		out.write(LINE_SEPARATOR);
+	}
+
+	// 表を書き換えなければ複数のスレッドから同時に呼べる（作業領域はスレッドごと）
+	public void printAge(int row, Writer out) throws IOException {
+		printAge(row, out, DIGITS.get());
+	}
+
+	// digitsは呼び出し側が使い回す作業領域（DIGITS_LENGTH文字以上）
+	void printAge(int row, Writer out, char[] digits) throws IOException {
+		printInt(ages[row], digits, out);
+		out.write(LINE_SEPARATOR);
+	}
+
+	// 数値を10進でdigitsに組み立てて書く
+	static void printInt(int value, char[] digits, Writer out) throws IOException {
+		int pos = DIGITS_LENGTH;
+		boolean negative = value < 0;
+		long rest = Math.abs((long) value);
+		do {
+			digits[--pos] = (char) ('0' + rest % 10);
+			rest /= 10;
+		} while (rest != 0);
+		if (negative) {
+			digits[--pos] = '-';
+		}
+		out.write(digits, pos, DIGITS_LENGTH - pos);
+	}
+
+	private int intern(String name) {
+		Integer index = poolIndex.get(name);
+		if (index != null) {
+			return index;
+		}
+		if (poolSize == namePool.length) {
+			namePool = Arrays.copyOf(namePool, poolSize * 2);
+		}
+		namePool[poolSize] = name;
+		poolIndex.put(name, poolSize);
+		return poolSize++;
+	}
+}
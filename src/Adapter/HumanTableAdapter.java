@@ -0,0 +1,43 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+// HumanTableの全行をまとめてStudentとして扱う
+public class HumanTableAdapter implements Student {
+
+	private HumanTable table;
+	private Writer out;
+
+	public HumanTableAdapter(HumanTable table) {
+		this(table, new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024));
+	}
+
+	public HumanTableAdapter(HumanTable table, Writer out) {
+		this.table = table;
+		this.out = out;
+	}
+
+	public void showName() {
+		try {
+			for (int row = 0; row < table.size(); row++) {
+				table.printName(row, out);
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void showAge() {
+		try {
+			for (int row = 0; row < table.size(); row++) {
+				table.printAge(row, out);
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
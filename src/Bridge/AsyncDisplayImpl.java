@@ -0,0 +1,210 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// 表示要求をリングバッファへ積み、専用スレッドが別のDisplayImplへまとめて流す
+// rawOpen/rawPrint/rawClose は1つのスレッドから呼ぶこと
+public class AsyncDisplayImpl extends DisplayImpl implements AutoCloseable {
+
+	// 待ち方
+	public enum WaitStrategy { SPIN, YIELD, PARK }
+
+	// バッファが一杯のときの振る舞い
+	public enum Backpressure { BLOCK, DROP }
+
+	private static final byte OPEN = 1;
+	private static final byte PRINT = 2;
+	private static final byte CLOSE = 3;
+	private static final byte FLUSH = 4;
+
+	private static final long PARK_NANOS = 50_000;
+
+	private final DisplayImpl delegate;
+	private final WaitStrategy waitStrategy;
+	private final Backpressure backpressure;
+	private final byte[] ring;
+	private final int mask;
+	// 書き込み済みの位置（生産者が更新）
+	private final AtomicLong published = new AtomicLong();
+	// 処理済みの位置（消費者が更新）
+	private final AtomicLong consumed = new AtomicLong();
+	// 生産者だけが使う位置と、最後に見た処理済み位置
+	private long next;
+	private long cachedConsumed;
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile boolean closed;
+	// 専用スレッドの最初の失敗と、それを呼び出し側へ報告したか（報告は一度だけ）
+	private volatile Throwable failure;
+	private boolean reported;
+	private final Thread writer;
+
+	public AsyncDisplayImpl(DisplayImpl delegate) {
+		this(delegate, 1024, WaitStrategy.PARK, Backpressure.BLOCK);
+	}
+
+	public AsyncDisplayImpl(DisplayImpl delegate, int capacity, WaitStrategy waitStrategy, Backpressure backpressure) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.delegate = delegate;
+		this.waitStrategy = waitStrategy;
+		this.backpressure = backpressure;
+		this.ring = new byte[size];
+		this.mask = size - 1;
+		this.writer = new Thread(this::drain, "AsyncDisplayImpl-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	public void rawOpen() {
+		publish(OPEN);
+	}
+
+	public void rawPrint() {
+		publish(PRINT);
+	}
+
+	public void rawClose() {
+		publish(CLOSE);
+	}
+
+	// ここまでに積んだ表示がすべて書き出されるまで待つ
+	// 専用スレッドが失敗していれば一度だけ例外にし、報告後は何もしない
+	public void flush() {
+		long target = publishBlocking(FLUSH);
+		while (target >= 0 && consumed.get() < target) {
+			if (failure != null) {
+				break;
+			}
+			idle();
+		}
+		reportFailure();
+	}
+
+	// 残りを書き出してから専用スレッドを止める（2回目以降は何もしない）
+	public void close() {
+		if (closed) {
+			return;
+		}
+		try {
+			flush();
+		} finally {
+			closed = true;
+			LockSupport.unpark(writer);
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// DROP指定時、または専用スレッドの失敗後に捨てた表示の数
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	private void publish(byte op) {
+		if (backpressure == Backpressure.DROP && isFull()) {
+			cachedConsumed = consumed.get();
+			if (isFull()) {
+				dropped.incrementAndGet();
+				return;
+			}
+		}
+		if (publishBlocking(op) < 0) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	// 積んだ位置を返す（専用スレッドが失敗していて積めなければ-1）
+	private long publishBlocking(byte op) {
+		if (closed) {
+			throw new IllegalStateException("AsyncDisplayImpl は既に閉じられています。");
+		}
+		if (publishFailed()) {
+			return -1;
+		}
+		while (isFull()) {
+			if (publishFailed()) {
+				return -1;
+			}
+			idle();
+			cachedConsumed = consumed.get();
+		}
+		ring[(int) next & mask] = op;
+		next++;
+		published.lazySet(next);
+		return next;
+	}
+
+	private boolean isFull() {
+		return next - cachedConsumed >= ring.length;
+	}
+
+	// 専用スレッドが失敗していればtrue（まだ報告していなければ例外にする）
+	// 失敗後の表示は書き出す先がないので捨てる
+	private boolean publishFailed() {
+		if (failure == null) {
+			return false;
+		}
+		reportFailure();
+		return true;
+	}
+
+	private void reportFailure() {
+		Throwable cause = failure;
+		if (cause != null && !reported) {
+			reported = true;
+			throw new IllegalStateException("表示の書き出しに失敗しました。", cause);
+		}
+	}
+
+	// 専用スレッドの処理
+	private void drain() {
+		long position = 0;
+		try {
+			while (true) {
+				long available = published.get();
+				if (position == available) {
+					if (closed) {
+						return;
+					}
+					idle();
+					continue;
+				}
+				while (position < available) {
+					switch (ring[(int) position & mask]) {
+					case OPEN:
+						delegate.rawOpen();
+						break;
+					case PRINT:
+						delegate.rawPrint();
+						break;
+					case CLOSE:
+						delegate.rawClose();
+						break;
+					case FLUSH:
+						delegate.flush();
+						break;
+					}
+					position++;
+				}
+				consumed.lazySet(position);
+			}
+		} catch (Throwable e) {
+			failure = e;
+		}
+	}
+
+	private void idle() {
+		switch (waitStrategy) {
+		case SPIN:
+			Thread.onSpinWait();
+			break;
+		case YIELD:
+			Thread.yield();
+			break;
+		case PARK:
+			LockSupport.parkNanos(PARK_NANOS);
+			break;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+// 表示内容を再利用するバッファへ溜め、まとめて出力先へ書き出す
+public class BufferedDisplayImpl extends DisplayImpl {
+
+	private static final int DEFAULT_CAPACITY = 64 * 1024;
+
+	// 枠線と本文はあらかじめ組み立てておく
+	private final char[] line;
+	private final char[] body;
+	private final char[] buffer;
+	private int count;
+	private final Writer sink;
+
+	public BufferedDisplayImpl(String string) {
+		this(string, new OutputStreamWriter(System.out), DEFAULT_CAPACITY);
+	}
+
+	public BufferedDisplayImpl(String string, Writer sink, int capacity) {
+		int width = string.getBytes().length;
+		StringBuilder builder = new StringBuilder(width + 4);
+		builder.append('+');
+		for (int i = 0; i < width; i++) {
+			builder.append('-');
+		}
+		builder.append('+').append(System.lineSeparator());
+		this.line = builder.toString().toCharArray();
+		this.body = ("|" + string + "|" + System.lineSeparator()).toCharArray();
+		this.buffer = new char[Math.max(capacity, Math.max(line.length, body.length))];
+		this.sink = sink;
+	}
+
+	public void rawOpen() {
+		append(line);
+	}
+
+	public void rawPrint() {
+		append(body);
+	}
+
+	public void rawClose() {
+		append(line);
+		flush();
+	}
+
+	public void flush() {
+		try {
+			if (count > 0) {
+				sink.write(buffer, 0, count);
+				count = 0;
+			}
+			sink.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void append(char[] chars) {
+		if (count + chars.length > buffer.length) {
+			try {
+				sink.write(buffer, 0, count);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			count = 0;
+		}
+		System.arraycopy(chars, 0, buffer, count, chars.length);
+		count += chars.length;
+	}
+}
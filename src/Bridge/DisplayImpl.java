@@ -2,4 +2,8 @@ public abstract class DisplayImpl {
 	public abstract void rawOpen();
 	public abstract void rawPrint();
 	public abstract void rawClose();
+
+	// バッファを持つ実装は溜まっている出力を書き出す
+	public void flush() {
+	}
 }
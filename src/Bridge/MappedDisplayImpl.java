@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// メモリマップしたファイルへ直接書き込む
+// close() はマップが残ったままファイルを切り詰める。Windowsではマップ中のファイルを切り詰められないので、
+// マップせずに同じ大きさのバッファへ溜めてファイルへ書き出す（ファイルは書いた分しか伸びないので切り詰めない）
+public class MappedDisplayImpl extends DisplayImpl implements AutoCloseable {
+
+	private static final int DEFAULT_WINDOW = 64 * 1024 * 1024;
+
+	// 枠線と本文はあらかじめバイト列にしておく
+	private final byte[] line;
+	private final byte[] body;
+	private final FileChannel channel;
+	private final int windowSize;
+	// マップして書き込むか（falseならwindowはファイルへ書き出す前のバッファ）
+	private final boolean mapped;
+	// 現在マップしている領域とファイル上の書き込み位置
+	private ByteBuffer window;
+	private long position;
+
+	public MappedDisplayImpl(String string, Path file) throws IOException {
+		this(string, file, DEFAULT_WINDOW);
+	}
+
+	public MappedDisplayImpl(String string, Path file, int windowSize) throws IOException {
+		int width = string.getBytes().length;
+		StringBuilder builder = new StringBuilder(width + 4);
+		builder.append('+');
+		for (int i = 0; i < width; i++) {
+			builder.append('-');
+		}
+		builder.append('+').append(System.lineSeparator());
+		this.line = builder.toString().getBytes();
+		this.body = ("|" + string + "|" + System.lineSeparator()).getBytes();
+		this.windowSize = Math.max(windowSize, Math.max(line.length, body.length));
+		this.mapped = !System.getProperty("os.name").startsWith("Windows");
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	public void rawOpen() {
+		put(line);
+	}
+
+	public void rawPrint() {
+		put(body);
+	}
+
+	public void rawClose() {
+		put(line);
+	}
+
+	// ディスクへ書き出す（以前にマップした領域は remap() で書き出し済み）
+	public void flush() {
+		try {
+			if (!mapped) {
+				drain();
+			} else if (window != null) {
+				((MappedByteBuffer) window).force();
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// 書き込んだ分ちょうどにファイルを切り詰めて閉じる
+	// window = null ではマップは解除されない（GCされるまで残る）が、POSIX系のOSではそのまま切り詰められる
+	public void close() throws IOException {
+		if (!channel.isOpen()) {
+			return;
+		}
+		flush();
+		window = null;
+		if (mapped) {
+			channel.truncate(position);
+		}
+		channel.close();
+	}
+
+	public long size() {
+		return position;
+	}
+
+	private void put(byte[] bytes) {
+		if (!mapped) {
+			if (window == null) {
+				window = ByteBuffer.allocateDirect(windowSize);
+			} else if (window.remaining() < bytes.length) {
+				drain();
+			}
+		} else if (window == null || window.remaining() < bytes.length) {
+			remap();
+		}
+		window.put(bytes);
+		position += bytes.length;
+	}
+
+	// 書き込み位置から先の領域をマップし直す（ファイルは自動的に伸びる）
+	// 使い終わった領域はこの後書き出す機会がないので、ここでディスクへ書き出す
+	private void remap() {
+		try {
+			if (window != null) {
+				((MappedByteBuffer) window).force();
+			}
+			window = channel.map(FileChannel.MapMode.READ_WRITE, position, windowSize);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// マップしない場合に、溜めた分をファイルの末尾へ書き出す
+	private void drain() {
+		if (window == null) {
+			return;
+		}
+		window.flip();
+		try {
+			long at = position - window.remaining();
+			while (window.hasRemaining()) {
+				at += channel.write(window, at);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		window.clear();
+	}
+}
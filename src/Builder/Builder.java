@@ -1,6 +1,39 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
 public abstract class Builder {
+	// beginItems() から endItems() までに渡された項目（既定の実装で使う）
+	private List<String> pendingItems;
+
 	public abstract void makeTitle(String title);
 	public abstract void makeString(String str);
-	public abstract void makeItems(String[] items);
+	public abstract void makeItems(Iterator<String> items);
 	public abstract void close();
-}
\ No newline at end of file
+
+	// 項目を1つずつ渡す。beginItems()、makeItem() を項目の数だけ、endItems() の順に呼ぶ
+	// 既定では溜めておいて endItems() で makeItems(Iterator) に渡す。溜めずに書けるBuilderは上書きする
+	public void beginItems() {
+		pendingItems = new ArrayList<>();
+	}
+
+	public void makeItem(String item) {
+		pendingItems.add(item);
+	}
+
+	public void endItems() {
+		List<String> items = pendingItems;
+		pendingItems = null;
+		makeItems(items.iterator());
+	}
+
+	public void makeItems(String[] items) {
+		makeItems(Arrays.asList(items).iterator());
+	}
+
+	public void makeItems(Stream<String> items) {
+		makeItems(items.iterator());
+	}
+}
@@ -0,0 +1,211 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// 多数の文書を複数のスレッドで並行して組み立てる
+// 文書ごとに新しいBuilderを作るので、Builder同士が状態や出力先を共有することはない
+public class DocumentBatch<T> {
+
+	// 組み立ての手順（Guideに相当）
+	public interface Director<T> {
+		public abstract void construct(T input, Builder builder);
+	}
+
+	// 文書ごとのBuilderを作る
+	public interface BuilderFactory<T> {
+		public abstract Builder create(T input, int index);
+	}
+
+	// 組み立てが終わった文書を受け取る
+	public interface Listener<T> {
+		public abstract void completed(Result<T> result);
+	}
+
+	private final Director<T> director;
+	private final BuilderFactory<T> factory;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	// 組み立て中または受け渡し待ちの文書数の上限
+	private int maxInFlight = 256;
+	// 入力の順に受け渡すかどうか
+	private boolean ordered;
+
+	public DocumentBatch(Director<T> director, BuilderFactory<T> factory) {
+		this.director = director;
+		this.factory = factory;
+	}
+
+	// 番号から重ならないファイル名を付けてHTMLを出力する
+	public static <T> BuilderFactory<T> htmlFiles(File directory) {
+		return (input, index) -> new HTMLBuilder(new File(directory, index + ".html"));
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = Math.max(1, maxInFlight);
+	}
+
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	// すべて入力の順に集めて返す
+	public List<Result<T>> run(List<T> inputs) throws InterruptedException {
+		List<Result<T>> results = new ArrayList<>(inputs.size());
+		run(inputs, results::add, true);
+		return results;
+	}
+
+	// 文書ができるたびにlistenerへ渡す（listenerの呼び出しは同時には行われない）
+	// listenerが例外を投げても残りの文書の組み立てと受け渡しは続け、すべて終わってから最初の例外を投げ直す
+	public void run(Iterable<T> inputs, Listener<T> listener) throws InterruptedException {
+		run(inputs, listener, ordered);
+	}
+
+	private void run(Iterable<T> inputs, Listener<T> listener, boolean ordered) throws InterruptedException {
+		Semaphore inFlight = new Semaphore(maxInFlight);
+		Delivery<T> delivery = new Delivery<>(listener, inFlight, ordered);
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		int index = 0;
+		try {
+			for (T input : inputs) {
+				inFlight.acquire();
+				int current = index++;
+				workers.execute(() -> delivery.accept(build(input, current)));
+			}
+		} finally {
+			workers.shutdown();
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+		Throwable failure = delivery.getFailure();
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new IllegalStateException(failure);
+		}
+	}
+
+	private Result<T> build(T input, int index) {
+		long start = System.nanoTime();
+		Builder builder = null;
+		Throwable error = null;
+		try {
+			builder = factory.create(input, index);
+			director.construct(input, builder);
+		} catch (Throwable e) {
+			error = e;
+			// 出力先を開いたままにしない
+			if (builder != null) {
+				try {
+					builder.close();
+				} catch (Throwable suppressed) {
+					error.addSuppressed(suppressed);
+				}
+			}
+		}
+		return new Result<>(index, input, builder, System.nanoTime() - start, error);
+	}
+
+	// 結果の受け渡し（順序を守る場合は前の番号がそろうまで保留する）
+	private static class Delivery<T> {
+		private final Listener<T> listener;
+		private final Semaphore inFlight;
+		private final boolean ordered;
+		private final Map<Integer, Result<T>> pending = new HashMap<>();
+		private int next;
+		// listenerが最初に投げた例外
+		private Throwable failure;
+
+		Delivery(Listener<T> listener, Semaphore inFlight, boolean ordered) {
+			this.listener = listener;
+			this.inFlight = inFlight;
+			this.ordered = ordered;
+		}
+
+		synchronized void accept(Result<T> result) {
+			if (!ordered) {
+				deliver(result);
+				return;
+			}
+			pending.put(result.getIndex(), result);
+			Result<T> ready;
+			while ((ready = pending.remove(next)) != null) {
+				try {
+					deliver(ready);
+				} finally {
+					next++;
+				}
+			}
+		}
+
+		synchronized Throwable getFailure() {
+			return failure;
+		}
+
+		// listenerの例外は記録して、後続の受け渡しを止めない
+		private void deliver(Result<T> result) {
+			try {
+				listener.completed(result);
+			} catch (Throwable e) {
+				if (failure == null) {
+					failure = e;
+				} else {
+					failure.addSuppressed(e);
+				}
+			} finally {
+				inFlight.release();
+			}
+		}
+	}
+
+	// 文書1つ分の結果
+	public static class Result<T> {
+		private final int index;
+		private final T input;
+		private final Builder builder;
+		private final long nanos;
+		private final Throwable error;
+
+		Result(int index, T input, Builder builder, long nanos, Throwable error) {
+			this.index = index;
+			this.input = input;
+			this.builder = builder;
+			this.nanos = nanos;
+			this.error = error;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public T getInput() {
+			return input;
+		}
+
+		public Builder getBuilder() {
+			return builder;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+
+		public boolean isSucceeded() {
+			return error == null;
+		}
+	}
+}
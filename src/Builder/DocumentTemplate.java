@@ -0,0 +1,178 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// 組み立て手順を固定部分のバイト列と差し込み口に分解したテンプレート
+// 差し込み口は slot()/intSlot() で得た文字列を組み立て手順に渡して指定する
+public class DocumentTemplate {
+
+	private static final byte MARK = 0x01;
+	private static final byte TEXT = 's';
+	private static final byte INT = 'i';
+
+	private final Charset charset;
+	// segments[0] slot[0] segments[1] slot[1] ... segments[n]
+	private final byte[][] segments;
+	private final byte[] slotTypes;
+	private final int[] slotIndexes;
+	private final int slotCount;
+
+	private DocumentTemplate(Charset charset, byte[][] segments, byte[] slotTypes, int[] slotIndexes) {
+		this.charset = charset;
+		this.segments = segments;
+		this.slotTypes = slotTypes;
+		this.slotIndexes = slotIndexes;
+		int count = 0;
+		for (int i = 0; i < slotIndexes.length; i++) {
+			count = Math.max(count, slotIndexes[i] + 1);
+		}
+		this.slotCount = count;
+	}
+
+	// 文字列を差し込む口
+	public static String slot(int index) {
+		return (char) MARK + "s" + index + (char) MARK;
+	}
+
+	// 整数を差し込む口
+	public static String intSlot(int index) {
+		return (char) MARK + "i" + index + (char) MARK;
+	}
+
+	public static DocumentTemplate compileHTML(Consumer<Builder> construction) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		construction.accept(new HTMLBuilder(out));
+		return compile(out.toByteArray(), Charset.defaultCharset());
+	}
+
+	public static DocumentTemplate compileText(Consumer<Builder> construction) {
+		Charset charset = Charset.defaultCharset();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Writer writer = new OutputStreamWriter(out, charset);
+		construction.accept(new TextBuilder(writer));
+		return compile(out.toByteArray(), charset);
+	}
+
+	private static DocumentTemplate compile(byte[] bytes, Charset charset) {
+		List<byte[]> segments = new ArrayList<>();
+		ByteArrayOutputStream types = new ByteArrayOutputStream();
+		List<Integer> indexes = new ArrayList<>();
+		int start = 0;
+		int i = 0;
+		while (i < bytes.length) {
+			if (bytes[i] != MARK) {
+				i++;
+				continue;
+			}
+			int end = i + 2;
+			while (end < bytes.length && bytes[end] != MARK) {
+				end++;
+			}
+			if (end == bytes.length) {
+				throw new IllegalArgumentException("差し込み口が閉じていません。");
+			}
+			segments.add(Arrays.copyOfRange(bytes, start, i));
+			types.write(bytes[i + 1]);
+			indexes.add(Integer.parseInt(new String(bytes, i + 2, end - i - 2, charset)));
+			i = end + 1;
+			start = i;
+		}
+		segments.add(Arrays.copyOfRange(bytes, start, bytes.length));
+		int[] slotIndexes = new int[indexes.size()];
+		for (int k = 0; k < slotIndexes.length; k++) {
+			slotIndexes[k] = indexes.get(k);
+		}
+		return new DocumentTemplate(charset, segments.toArray(new byte[0][]), types.toByteArray(), slotIndexes);
+	}
+
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	// 値を差し込んで出力する（値は slot の番号順）
+	// 数値はintで表せる値に限る（切り捨てや桁あふれが起きる値はIllegalArgumentException）
+	public void render(OutputStream out, Object... values) {
+		Document document = newDocument();
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] instanceof Number) {
+				document.set(i, intValue((Number) values[i]));
+			} else {
+				document.set(i, String.valueOf(values[i]));
+			}
+		}
+		document.writeTo(out);
+	}
+
+	private static int intValue(Number number) {
+		long value = number.longValue();
+		if (value != (int) value || number.doubleValue() != value) {
+			throw new IllegalArgumentException("int で表せない値です: " + number);
+		}
+		return (int) value;
+	}
+
+	// 値を入れ替えながら繰り返し出力するための入れ物
+	public Document newDocument() {
+		return new Document();
+	}
+
+	// 文字列の口には set(int, String)、整数の口には set(int, int) で値を入れる
+	// 文字列は入れたときに一度だけバイト列にし、出力のたびには変換しない
+	public class Document {
+		private final String[] texts = new String[slotCount];
+		private final byte[][] encoded = new byte[slotCount][];
+		private final int[] ints = new int[slotCount];
+		private final byte[] digits = new byte[11];
+
+		public Document set(int index, String value) {
+			if (value != texts[index]) {
+				texts[index] = value;
+				encoded[index] = value == null ? null : value.getBytes(charset);
+			}
+			return this;
+		}
+
+		public Document set(int index, int value) {
+			ints[index] = value;
+			return this;
+		}
+
+		public void writeTo(OutputStream out) {
+			try {
+				for (int i = 0; i < slotTypes.length; i++) {
+					out.write(segments[i]);
+					int index = slotIndexes[i];
+					if (slotTypes[i] == INT) {
+						writeInt(out, ints[index]);
+					} else if (encoded[index] != null) {
+						out.write(encoded[index]);
+					}
+				}
+				out.write(segments[segments.length - 1]);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void writeInt(OutputStream out, int value) throws IOException {
+			int pos = digits.length;
+			long rest = Math.abs((long) value);
+			do {
+				digits[--pos] = (byte) ('0' + rest % 10);
+				rest /= 10;
+			} while (rest != 0);
+			if (value < 0) {
+				digits[--pos] = '-';
+			}
+			out.write(digits, pos, digits.length - pos);
+		}
+	}
+}
@@ -1,41 +1,126 @@
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
 
 public class HTMLBuilder extends Builder {
 
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final Charset CHARSET = Charset.defaultCharset();
+	private static final String NEWLINE = System.lineSeparator();
+
+	// 固定のマークアップはあらかじめバイト列にしておく
+	private static final byte[] HEAD_OPEN = encode("<html><head><title>");
+	private static final byte[] HEAD_CLOSE = encode("</title></head><body>" + NEWLINE + "<h1>");
+	private static final byte[] H1_CLOSE = encode("</h1>" + NEWLINE);
+	private static final byte[] P_OPEN = encode("<p>");
+	private static final byte[] P_CLOSE = encode("</p>" + NEWLINE);
+	private static final byte[] UL_OPEN = encode("<ul>" + NEWLINE);
+	private static final byte[] UL_CLOSE = encode("</ul>" + NEWLINE);
+	private static final byte[] LI_OPEN = encode("<li>");
+	private static final byte[] LI_CLOSE = encode("</li>" + NEWLINE);
+	private static final byte[] BODY_CLOSE = encode("</body></html>" + NEWLINE);
+
 	private String filename;
-	private PrintWriter writer;
+	private OutputStream out;
+	// 出力先を呼び出し側が用意したかどうか
+	private boolean external;
+
+	public HTMLBuilder() {
+	}
+
+	// タイトルからではなく指定したファイルへ出力する
+	public HTMLBuilder(File file) {
+		this.filename = file.getPath();
+	}
+
+	// 指定した出力先へ書き込む（クローズは呼び出し側）
+	public HTMLBuilder(OutputStream out) {
+		this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out, BUFFER_SIZE);
+		this.external = true;
+	}
 
 	public void makeTitle(String title) {
-		filename = title + ".html";
-		try {
-			writer = new PrintWriter(new FileWriter(filename));
-		} catch (IOException e) {
-			e.printStackTrace();
+		if (filename == null) {
+			filename = title + ".html";
 		}
-		writer.println("<html><head><title>" + title + "</title></head><body>");
-		writer.println("<h1>" + title + "</h1>");
+		if (out == null) {
+			try {
+				out = new BufferedOutputStream(new FileOutputStream(filename), BUFFER_SIZE);
+			} catch (FileNotFoundException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		write(HEAD_OPEN);
+		write(title);
+		write(HEAD_CLOSE);
+		write(title);
+		write(H1_CLOSE);
 	}
 
 	public void makeString(String str) {
-		writer.println("<p>" + str + "</p>");
+		write(P_OPEN);
+		write(str);
+		write(P_CLOSE);
 	}
 
-	public void makeItems(String[] items) {
-		writer.println("<ul>");
-		for (int i = 0; i < items.length; i++) {
-			writer.println("<li>" + items[i] + "</li>");
+	public void makeItems(Iterator<String> items) {
+		beginItems();
+		while (items.hasNext()) {
+			makeItem(items.next());
 		}
-		writer.println("</ul>");
+		endItems();
+	}
+
+	public void beginItems() {
+		write(UL_OPEN);
+	}
+
+	public void makeItem(String item) {
+		write(LI_OPEN);
+		write(item);
+		write(LI_CLOSE);
+	}
+
+	public void endItems() {
+		write(UL_CLOSE);
 	}
 
 	public void close() {
-		writer.println("</body></html>");
-		writer.close();
+		write(BODY_CLOSE);
+		try {
+			if (external) {
+				out.flush();
+			} else {
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 
 	public String getResult() {
 		return filename;
 	}
-}
\ No newline at end of file
+
+	private void write(String text) {
+		write(text.getBytes(CHARSET));
+	}
+
+	private void write(byte[] bytes) {
+		try {
+			out.write(bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static byte[] encode(String markup) {
+		return markup.getBytes(CHARSET);
+	}
+}
@@ -0,0 +1,60 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+// 組み立ての手順をバイナリのテープに記録するBuilder
+public class RecordingBuilder extends Builder {
+
+	private ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	public void makeTitle(String title) {
+		out.write(Tape.TITLE);
+		writeString(title);
+	}
+
+	public void makeString(String str) {
+		out.write(Tape.STRING);
+		writeString(str);
+	}
+
+	public void makeItems(Iterator<String> items) {
+		beginItems();
+		while (items.hasNext()) {
+			makeItem(items.next());
+		}
+		endItems();
+	}
+
+	public void beginItems() {
+		out.write(Tape.ITEMS);
+	}
+
+	public void makeItem(String item) {
+		out.write(Tape.ITEM);
+		writeString(item);
+	}
+
+	public void endItems() {
+		out.write(Tape.END);
+	}
+
+	public void close() {
+		out.write(Tape.CLOSE);
+	}
+
+	public Tape getResult() {
+		return new Tape(out.toByteArray());
+	}
+
+	// 長さ(可変長整数) + UTF-8
+	private void writeString(String str) {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		int length = bytes.length;
+		while ((length & ~0x7F) != 0) {
+			out.write((length & 0x7F) | 0x80);
+			length >>>= 7;
+		}
+		out.write(length);
+		out.write(bytes, 0, bytes.length);
+	}
+}
@@ -0,0 +1,112 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+// RecordingBuilderが記録した手順。何度でも、どのBuilderへでも再生できる
+public class Tape {
+
+	static final int TITLE = 1;
+	static final int STRING = 2;
+	static final int ITEMS = 3;
+	static final int ITEM = 4;
+	static final int END = 5;
+	static final int CLOSE = 6;
+
+	private final byte[] bytes;
+
+	Tape(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	public int size() {
+		return bytes.length;
+	}
+
+	// Directorを再実行せずに手順をbuilderへ流す
+	public void replay(Builder builder) {
+		new Reader(builder).run();
+	}
+
+	// 複数のBuilderへそれぞれ別スレッドで再生し、すべて終わるまで待つ
+	public void replay(Executor executor, Builder... builders) {
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (Builder builder : builders) {
+			futures.add(CompletableFuture.runAsync(() -> replay(builder), executor));
+		}
+		try {
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	// テープを先頭から読む（項目は必要になった時点で1つずつ取り出す）
+	private class Reader implements Iterator<String> {
+		private final Builder builder;
+		private int position;
+
+		Reader(Builder builder) {
+			this.builder = builder;
+		}
+
+		void run() {
+			while (position < bytes.length) {
+				switch (bytes[position++]) {
+				case TITLE:
+					builder.makeTitle(readString());
+					break;
+				case STRING:
+					builder.makeString(readString());
+					break;
+				case ITEMS:
+					builder.makeItems(this);
+					// Builderが読み残した項目を読み飛ばす
+					while (hasNext()) {
+						next();
+					}
+					position++;
+					break;
+				case CLOSE:
+					builder.close();
+					break;
+				default:
+					throw new IllegalStateException("不正なテープです。位置: " + (position - 1));
+				}
+			}
+		}
+
+		public boolean hasNext() {
+			return bytes[position] == ITEM;
+		}
+
+		public String next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			position++;
+			return readString();
+		}
+
+		private String readString() {
+			int length = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = bytes[position++];
+				length |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			String str = new String(bytes, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return str;
+		}
+	}
+}
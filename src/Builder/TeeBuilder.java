@@ -0,0 +1,60 @@
+import java.util.Iterator;
+
+// 1回の組み立てを複数のBuilderへ同時に流す
+public class TeeBuilder extends Builder {
+
+	private Builder[] builders;
+
+	public TeeBuilder(Builder... builders) {
+		this.builders = builders.clone();
+	}
+
+	public void makeTitle(String title) {
+		for (int i = 0; i < builders.length; i++) {
+			builders[i].makeTitle(title);
+		}
+	}
+
+	public void makeString(String str) {
+		for (int i = 0; i < builders.length; i++) {
+			builders[i].makeString(str);
+		}
+	}
+
+	// 項目は一度しか読めないので、1つ読むごとにすべてのBuilderへ渡す（項目を溜めない）
+	public void makeItems(Iterator<String> items) {
+		if (builders.length == 1) {
+			builders[0].makeItems(items);
+			return;
+		}
+		beginItems();
+		while (items.hasNext()) {
+			makeItem(items.next());
+		}
+		endItems();
+	}
+
+	public void beginItems() {
+		for (int i = 0; i < builders.length; i++) {
+			builders[i].beginItems();
+		}
+	}
+
+	public void makeItem(String item) {
+		for (int i = 0; i < builders.length; i++) {
+			builders[i].makeItem(item);
+		}
+	}
+
+	public void endItems() {
+		for (int i = 0; i < builders.length; i++) {
+			builders[i].endItems();
+		}
+	}
+
+	public void close() {
+		for (int i = 0; i < builders.length; i++) {
+			builders[i].close();
+		}
+	}
+}
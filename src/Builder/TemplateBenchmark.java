@@ -0,0 +1,67 @@
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class TemplateBenchmark {
+
+	private static final int DOCUMENTS = 200_000;
+
+	public static void main(String[] args) throws Exception {
+		DocumentTemplate html = DocumentTemplate.compileHTML(b -> construct(b, DocumentTemplate.slot(0), DocumentTemplate.intSlot(1)));
+		DocumentTemplate text = DocumentTemplate.compileText(b -> construct(b, DocumentTemplate.slot(0), DocumentTemplate.intSlot(1)));
+
+		for (int round = 0; round < 3; round++) {
+			measure("HTMLBuilder         ", () -> {
+				OutputStream out = new BufferedOutputStream(OutputStream.nullOutputStream());
+				for (int i = 0; i < DOCUMENTS; i++) {
+					construct(new HTMLBuilder(out), "バーベキュー", String.valueOf(i));
+				}
+			});
+			measure("HTML template       ", () -> {
+				OutputStream out = new BufferedOutputStream(OutputStream.nullOutputStream());
+				DocumentTemplate.Document document = html.newDocument().set(0, "バーベキュー");
+				for (int i = 0; i < DOCUMENTS; i++) {
+					document.set(1, i).writeTo(out);
+				}
+			});
+			measure("TextBuilder         ", () -> {
+				Writer out = new OutputStreamWriter(OutputStream.nullOutputStream(), UTF_8);
+				for (int i = 0; i < DOCUMENTS; i++) {
+					construct(new TextBuilder(out), "バーベキュー", String.valueOf(i));
+				}
+			});
+			measure("Text template       ", () -> {
+				OutputStream out = new BufferedOutputStream(OutputStream.nullOutputStream());
+				DocumentTemplate.Document document = text.newDocument().set(0, "バーベキュー");
+				for (int i = 0; i < DOCUMENTS; i++) {
+					document.set(1, i).writeTo(out);
+				}
+			});
+			System.out.println();
+		}
+	}
+
+	private static void construct(Builder builder, String title, String number) {
+		builder.makeTitle(title);
+		builder.makeString("受付番号");
+		builder.makeItems(new String[] { number });
+		builder.makeString("持ち物");
+		builder.makeItems(new String[] { "タオル", "肉", "飲み物" });
+		builder.close();
+	}
+
+	private static void measure(String name, Runnable body) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		body.run();
+		long elapsed = System.nanoTime() - start;
+		allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+		System.out.println(name + ": " + (DOCUMENTS * 1_000_000_000L / elapsed) + " docs/s, " + allocated / DOCUMENTS + " bytes/doc");
+	}
+}
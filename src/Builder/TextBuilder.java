@@ -1,30 +1,80 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Iterator;
+
 public class TextBuilder extends Builder {
 
-	private StringBuffer buffer = new StringBuffer();
+	private StringBuilder buffer;
+	private Appendable out;
+
+	public TextBuilder() {
+		this.buffer = new StringBuilder();
+		this.out = buffer;
+	}
+
+	// 結果を溜めずに指定した出力先へ書き込む（クローズは呼び出し側）
+	public TextBuilder(Writer out) {
+		this.out = out;
+	}
 
 	public void makeTitle(String title) {
-		buffer.append("==============================\n");
-		buffer.append("『" + title + "』\n");
-		buffer.append("\n");
+		append("==============================\n");
+		append("『");
+		append(title);
+		append("』\n");
+		append("\n");
 	}
 
 	public void makeString(String str) {
-		buffer.append('■' + str + "\n");
-		buffer.append("\n");
+		append("■");
+		append(str);
+		append("\n");
+		append("\n");
 	}
 
-	public void makeItems(String[] items) {
-		for (int i = 0; i < items.length; i++) {
-			buffer.append("　・" + items[i] + "\n");
+	public void makeItems(Iterator<String> items) {
+		beginItems();
+		while (items.hasNext()) {
+			makeItem(items.next());
 		}
-		buffer.append("\n");
+		endItems();
+	}
+
+	public void beginItems() {
+	}
+
+	public void makeItem(String item) {
+		append("　・");
+		append(item);
+		append("\n");
+	}
+
+	public void endItems() {
+		append("\n");
 	}
 
 	public void close() {
-		buffer.append("==============================\n");
+		append("==============================\n");
+		if (out instanceof Writer) {
+			try {
+				((Writer) out).flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
 	}
 
+	// 出力先へ書き込まずに溜めた場合のみ結果を返す
 	public String getResult() {
-		return buffer.toString();
+		return buffer == null ? null : buffer.toString();
+	}
+
+	private void append(String text) {
+		try {
+			out.append(text);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
-}
\ No newline at end of file
+}
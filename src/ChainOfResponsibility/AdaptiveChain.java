@@ -0,0 +1,114 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 解決した割合の高い解決者を前に並べ替えながら使う連鎖
+// 並べ替えるのは入れ替えても結果が変わらないと宣言された解決者だけで、
+// 隣り合う宣言済みの解決者同士の間でのみ順番を入れ替える
+// 割合は並べ替えの間隔ごとの値を指数的に減衰させながら平均するので、問題の傾向が変われば順番も追従する
+public class AdaptiveChain {
+
+	// 1回の並べ替えごとに古い割合に掛ける重み（小さいほど最近の傾向を重視する）
+	private static final double DECAY = 0.5;
+
+	private final Set<Support> commutative = Collections.newSetFromMap(new IdentityHashMap<>());
+	// 何件処理するごとに並べ替えるか
+	private final int interval;
+	private final AtomicLong count = new AtomicLong();
+	// 前回の並べ替えで見た呼び出し回数・解決回数と、減衰させた解決の割合（reorderの中だけで使う）
+	private final Map<Support, long[]> seen = new IdentityHashMap<>();
+	private final Map<Support, Double> rates = new IdentityHashMap<>();
+	// 解決できなかったときに報告する解決者（元の連鎖の末尾）
+	private final Support last;
+	private volatile Support[] order;
+
+	public AdaptiveChain(Support head, int interval) {
+		List<Support> list = new ArrayList<>();
+		for (Support support = head; support != null; support = support.getNext()) {
+			support.enableStats();
+			list.add(support);
+		}
+		if (list.isEmpty()) {
+			throw new IllegalArgumentException("連鎖が空です。");
+		}
+		this.order = list.toArray(new Support[0]);
+		this.last = order[order.length - 1];
+		this.interval = Math.max(1, interval);
+	}
+
+	// 順番を入れ替えても結果が変わらない解決者として宣言する
+	public synchronized void declareCommutative(Support support) {
+		commutative.add(support);
+	}
+
+	public void support(Trouble trouble) {
+		Support[] current = order;
+		try {
+			for (int i = 0; i < current.length; i++) {
+				if (current[i].tryResolve(trouble)) {
+					current[i].done(trouble);
+					return;
+				}
+			}
+			last.fail(trouble);
+		} finally {
+			if (count.incrementAndGet() % interval == 0) {
+				reorder();
+			}
+		}
+	}
+
+	// 宣言済みの解決者が連続している区間ごとに、解決した割合の高い順に並べる
+	public synchronized void reorder() {
+		Support[] next = order.clone();
+		for (Support support : next) {
+			updateRate(support);
+		}
+		int start = 0;
+		while (start < next.length) {
+			if (!commutative.contains(next[start])) {
+				start++;
+				continue;
+			}
+			int end = start;
+			while (end < next.length && commutative.contains(next[end])) {
+				end++;
+			}
+			Arrays.sort(next, start, end, (a, b) -> Double.compare(rates.get(b), rates.get(a)));
+			start = end;
+		}
+		order = next;
+	}
+
+	// 前回からの解決の割合を、減衰させた過去の割合に加える（前回から呼ばれていなければ変えない）
+	private void updateRate(Support support) {
+		SupportStats.Snapshot snapshot = support.getStats().snapshot();
+		long[] counts = seen.computeIfAbsent(support, s -> new long[2]);
+		long calls = snapshot.getCalls() - counts[0];
+		long hits = snapshot.getHits() - counts[1];
+		counts[0] = snapshot.getCalls();
+		counts[1] = snapshot.getHits();
+		if (calls == 0) {
+			rates.putIfAbsent(support, 0.0);
+			return;
+		}
+		double recent = (double) hits / calls;
+		Double previous = rates.get(support);
+		rates.put(support, previous == null ? recent : DECAY * previous + (1 - DECAY) * recent);
+	}
+
+	// 現在の順番での各解決者の計測結果
+	public Map<Support, SupportStats.Snapshot> snapshot() {
+		Map<Support, SupportStats.Snapshot> result = new LinkedHashMap<>();
+		for (Support support : order) {
+			result.put(support, support.getStats().snapshot());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,250 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Supportの連鎖を種類ごとの表に変換し、先頭から辿らずに解決者を求める
+// 求まる解決者は元の連鎖を先頭から辿った場合と必ず同じになる
+// 変換後に元の連鎖を変更しても反映されない
+public class CompiledChain {
+
+	private static final int NONE = Integer.MAX_VALUE;
+	// 並列処理でこれ以下の件数は分割しない
+	private static final int BATCH_THRESHOLD = 16 * 1024;
+
+	// まとめて処理した結果を1件ずつ受け取る
+	public interface Callback {
+		public abstract void resolved(int position, int number, int resolver);
+	}
+
+	// 連鎖の順に並べた解決者
+	private final Support[] handlers;
+	// LimitSupport: 昇順のlimitと、それ以降のlimitを持つ解決者のうち最も前の位置
+	private final int[] limits;
+	private final int[] limitFirst;
+	// SpecialSupport: 番号から最も前の位置を引くハッシュ表（オープンアドレス法）
+	private final int[] specialKeys;
+	private final int[] specialIndexes;
+	private final int specialMask;
+	// OddSupport: 最も前の位置
+	private final int oddFirst;
+	// 種類のわからない解決者の位置（昇順）
+	private final int[] others;
+
+	private CompiledChain(Support[] handlers) {
+		this.handlers = handlers;
+
+		List<int[]> limitList = new ArrayList<>();
+		List<int[]> specialList = new ArrayList<>();
+		int odd = NONE;
+		int[] otherList = new int[handlers.length];
+		int otherCount = 0;
+		for (int i = 0; i < handlers.length; i++) {
+			Class<?> type = handlers[i].getClass();
+			if (type == NoSupport.class) {
+				continue;
+			} else if (type == LimitSupport.class) {
+				limitList.add(new int[] { ((LimitSupport) handlers[i]).getLimit(), i });
+			} else if (type == SpecialSupport.class) {
+				specialList.add(new int[] { ((SpecialSupport) handlers[i]).getNumber(), i });
+			} else if (type == OddSupport.class) {
+				odd = Math.min(odd, i);
+			} else {
+				otherList[otherCount++] = i;
+			}
+		}
+
+		limitList.sort((a, b) -> Integer.compare(a[0], b[0]));
+		limits = new int[limitList.size()];
+		limitFirst = new int[limitList.size()];
+		int first = NONE;
+		for (int i = limits.length - 1; i >= 0; i--) {
+			first = Math.min(first, limitList.get(i)[1]);
+			limits[i] = limitList.get(i)[0];
+			limitFirst[i] = first;
+		}
+
+		int capacity = Integer.highestOneBit(Math.max(1, specialList.size()) * 2 - 1) << 1;
+		specialKeys = new int[capacity];
+		specialIndexes = new int[capacity];
+		Arrays.fill(specialIndexes, NONE);
+		specialMask = capacity - 1;
+		for (int[] special : specialList) {
+			int slot = slotOf(special[0]);
+			while (specialIndexes[slot] != NONE && specialKeys[slot] != special[0]) {
+				slot = (slot + 1) & specialMask;
+			}
+			// 同じ番号が複数あれば前にあるものを残す
+			if (specialIndexes[slot] == NONE) {
+				specialKeys[slot] = special[0];
+				specialIndexes[slot] = special[1];
+			}
+		}
+
+		oddFirst = odd;
+		others = Arrays.copyOf(otherList, otherCount);
+	}
+
+	public static CompiledChain compile(Support head) {
+		List<Support> list = new ArrayList<>();
+		for (Support support = head; support != null; support = support.getNext()) {
+			list.add(support);
+		}
+		if (list.isEmpty()) {
+			throw new IllegalArgumentException("連鎖が空です。");
+		}
+		return new CompiledChain(list.toArray(new Support[0]));
+	}
+
+	public int size() {
+		return handlers.length;
+	}
+
+	public Support getHandler(int index) {
+		return handlers[index];
+	}
+
+	// Support.support(Trouble) と同じ結果になる
+	public void support(Trouble trouble) {
+		int index = dispatch(trouble.getNumber(), trouble);
+		if (index >= 0) {
+			handlers[index].done(trouble);
+		} else {
+			handlers[handlers.length - 1].fail(trouble);
+		}
+	}
+
+	// 解決者の位置を返す。解決できなければ-1
+	public int dispatch(int number) {
+		return dispatch(number, null);
+	}
+
+	// numbers[i] の解決者の位置を resolvers[i] に入れる（解決できなければ-1）
+	public void dispatch(int[] numbers, int[] resolvers) {
+		if (resolvers.length < numbers.length) {
+			throw new IllegalArgumentException("resolvers が短すぎます。");
+		}
+		dispatch(numbers, resolvers, 0, numbers.length);
+	}
+
+	// 複数のスレッドに分けて処理する
+	public void dispatchParallel(int[] numbers, int[] resolvers) {
+		if (resolvers.length < numbers.length) {
+			throw new IllegalArgumentException("resolvers が短すぎます。");
+		}
+		ForkJoinPool.commonPool().invoke(new BatchTask(numbers, resolvers, 0, numbers.length));
+	}
+
+	// 1件ごとにcallbackを呼ぶ。並列時のcallbackは複数のスレッドから呼ばれる
+	public void dispatch(int[] numbers, Callback callback) {
+		for (int i = 0; i < numbers.length; i++) {
+			callback.resolved(i, numbers[i], dispatch(numbers[i], null));
+		}
+	}
+
+	public void dispatchParallel(int[] numbers, Callback callback) {
+		ForkJoinPool.commonPool().invoke(new BatchTask(numbers, callback, 0, numbers.length));
+	}
+
+	private void dispatch(int[] numbers, int[] resolvers, int from, int to) {
+		for (int i = from; i < to; i++) {
+			resolvers[i] = dispatch(numbers[i], null);
+		}
+	}
+
+	private class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int[] numbers;
+		private final int[] resolvers;
+		private final Callback callback;
+		private final int from;
+		private final int to;
+
+		BatchTask(int[] numbers, int[] resolvers, int from, int to) {
+			this(numbers, resolvers, null, from, to);
+		}
+
+		BatchTask(int[] numbers, Callback callback, int from, int to) {
+			this(numbers, null, callback, from, to);
+		}
+
+		private BatchTask(int[] numbers, int[] resolvers, Callback callback, int from, int to) {
+			this.numbers = numbers;
+			this.resolvers = resolvers;
+			this.callback = callback;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > BATCH_THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BatchTask(numbers, resolvers, callback, from, middle),
+						new BatchTask(numbers, resolvers, callback, middle, to));
+			} else if (callback == null) {
+				dispatch(numbers, resolvers, from, to);
+			} else {
+				for (int i = from; i < to; i++) {
+					callback.resolved(i, numbers[i], dispatch(numbers[i], null));
+				}
+			}
+		}
+	}
+
+	private int dispatch(int number, Trouble trouble) {
+		int best = NONE;
+
+		int pos = upperBound(number);
+		if (pos < limits.length) {
+			best = limitFirst[pos];
+		}
+
+		if (specialIndexes.length > 0) {
+			int slot = slotOf(number);
+			while (specialIndexes[slot] != NONE) {
+				if (specialKeys[slot] == number) {
+					best = Math.min(best, specialIndexes[slot]);
+					break;
+				}
+				slot = (slot + 1) & specialMask;
+			}
+		}
+
+		if (number % 2 == 1) {
+			best = Math.min(best, oddFirst);
+		}
+
+		// 種類のわからない解決者は、それより前にあるものだけ実際に試す
+		for (int i = 0; i < others.length && others[i] < best; i++) {
+			if (trouble == null) {
+				trouble = new Trouble(number);
+			}
+			if (handlers[others[i]].resolve(trouble)) {
+				return others[i];
+			}
+		}
+		return best == NONE ? -1 : best;
+	}
+
+	// number < limit となる最初の位置
+	private int upperBound(int number) {
+		int low = 0;
+		int high = limits.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (limits[middle] <= number) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int slotOf(int key) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & specialMask;
+	}
+}
@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 処理中でも安全に組み替えられる連鎖
+// 解決者の並びは変更不可の配列として保持し、変更時は新しい配列に差し替える
+public class ConcurrentChain {
+
+	private static final Support[] EMPTY = new Support[0];
+
+	private final AtomicReference<Support[]> handlers = new AtomicReference<>(EMPTY);
+
+	public ConcurrentChain() {
+	}
+
+	// setNextでつないだ連鎖から作る
+	public ConcurrentChain(Support head) {
+		List<Support> list = new ArrayList<>();
+		for (Support support = head; support != null; support = support.getNext()) {
+			list.add(support);
+		}
+		handlers.set(list.toArray(EMPTY));
+	}
+
+	// 解決できればtrue。解決できなければ末尾の解決者がfailを報告する
+	public boolean support(Trouble trouble) {
+		Support[] current = handlers.get();
+		for (int i = 0; i < current.length; i++) {
+			if (current[i].tryResolve(trouble)) {
+				current[i].done(trouble);
+				return true;
+			}
+		}
+		if (current.length > 0) {
+			current[current.length - 1].fail(trouble);
+		}
+		return false;
+	}
+
+	public int size() {
+		return handlers.get().length;
+	}
+
+	// 現在の並びのコピー（変更しても連鎖には影響しない）
+	public Support[] getHandlers() {
+		return handlers.get().clone();
+	}
+
+	public void add(Support support) {
+		while (true) {
+			Support[] current = handlers.get();
+			if (handlers.compareAndSet(current, inserted(current, current.length, support))) {
+				return;
+			}
+		}
+	}
+
+	// まとめて末尾に加える（1件ずつaddすると毎回配列をコピーするため）
+	public void addAll(List<? extends Support> supports) {
+		Support[] added = supports.toArray(EMPTY);
+		while (true) {
+			Support[] current = handlers.get();
+			Support[] next = new Support[current.length + added.length];
+			System.arraycopy(current, 0, next, 0, current.length);
+			System.arraycopy(added, 0, next, current.length, added.length);
+			if (handlers.compareAndSet(current, next)) {
+				return;
+			}
+		}
+	}
+
+	public void insert(int index, Support support) {
+		while (true) {
+			Support[] current = handlers.get();
+			if (index < 0 || index > current.length) {
+				throw new IndexOutOfBoundsException("index: " + index + ", size: " + current.length);
+			}
+			if (handlers.compareAndSet(current, inserted(current, index, support))) {
+				return;
+			}
+		}
+	}
+
+	// 見つからなければfalse
+	public boolean remove(Support support) {
+		while (true) {
+			Support[] current = handlers.get();
+			int index = indexOf(current, support);
+			if (index < 0) {
+				return false;
+			}
+			Support[] next = new Support[current.length - 1];
+			System.arraycopy(current, 0, next, 0, index);
+			System.arraycopy(current, index + 1, next, index, current.length - index - 1);
+			if (handlers.compareAndSet(current, next)) {
+				return true;
+			}
+		}
+	}
+
+	// 見つからなければfalse
+	public boolean replace(Support oldSupport, Support newSupport) {
+		while (true) {
+			Support[] current = handlers.get();
+			int index = indexOf(current, oldSupport);
+			if (index < 0) {
+				return false;
+			}
+			Support[] next = current.clone();
+			next[index] = newSupport;
+			if (handlers.compareAndSet(current, next)) {
+				return true;
+			}
+		}
+	}
+
+	private static Support[] inserted(Support[] current, int index, Support support) {
+		Support[] next = new Support[current.length + 1];
+		System.arraycopy(current, 0, next, 0, index);
+		next[index] = support;
+		System.arraycopy(current, index, next, index + 1, current.length - index);
+		return next;
+	}
+
+	private static int indexOf(Support[] current, Support support) {
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == support) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -7,6 +7,10 @@ public class LimitSupport extends Support {
 		this.limit = limit;
 	}
 
+	int getLimit() {
+		return limit;
+	}
+
 	// limit未満なら解決可能
 	protected boolean resolve(Trouble trouble) {
 		if (trouble.getNumber() < limit) {
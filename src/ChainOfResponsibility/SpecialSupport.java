@@ -7,6 +7,10 @@ public class SpecialSupport extends Support {
 		this.number = number;
 	}
 
+	int getNumber() {
+		return number;
+	}
+
 	// numberであれば解決可能
 	protected boolean resolve(Trouble trouble) {
 		if (trouble.getNumber() == number) {
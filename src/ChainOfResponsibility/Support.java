@@ -4,6 +4,8 @@ public abstract class Support {
 	private String name;
 	// たらい回し先
 	private Support next;
+	// 計測結果（計測しない場合はnull）
+	private volatile SupportStats stats;
 
 	public Support(String name) {
 		this.name = name;
@@ -14,15 +16,49 @@ public abstract class Support {
 		return next;
 	}
 
-	// トラブル解決の手順
+	Support getNext() {
+		return next;
+	}
+
+	// 計測を始める
+	public SupportStats enableStats() {
+		if (stats == null) {
+			synchronized (this) {
+				if (stats == null) {
+					stats = new SupportStats();
+				}
+			}
+		}
+		return stats;
+	}
+
+	public SupportStats getStats() {
+		return stats;
+	}
+
+	// 計測が有効なら時間を計ってresolveを呼ぶ
+	boolean tryResolve(Trouble trouble) {
+		SupportStats current = stats;
+		if (current == null) {
+			return resolve(trouble);
+		}
+		long start = System.nanoTime();
+		boolean resolved = resolve(trouble);
+		current.record(System.nanoTime() - start, resolved);
+		return resolved;
+	}
+
+	// トラブル解決の手順（長い連鎖でもスタックを消費しないよう順に辿る）
 	public void support(Trouble trouble) {
-		if (resolve(trouble)) {
-			done(trouble);
-		} else if (next != null) {
-			next.support(trouble);
-		} else {
-			fail(trouble);
+		Support support = this;
+		while (!support.tryResolve(trouble)) {
+			if (support.next == null) {
+				support.fail(trouble);
+				return;
+			}
+			support = support.next;
 		}
+		support.done(trouble);
 	}
 
 	public String toString() {
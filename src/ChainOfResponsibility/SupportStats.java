@@ -0,0 +1,90 @@
+import java.util.concurrent.atomic.LongAdder;
+
+// 解決者ごとの呼び出し回数・解決回数・resolveの所要時間
+public class SupportStats {
+
+	// 所要時間のヒストグラムは2のべき乗ナノ秒ごとに区切る
+	private static final int BUCKETS = 64;
+
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	// 回数と同じく区間ごとにLongAdderで分散して数える（多数のスレッドが同じ区間を数えても競合しない）
+	private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+	public SupportStats() {
+		for (int i = 0; i < BUCKETS; i++) {
+			histogram[i] = new LongAdder();
+		}
+	}
+
+	void record(long nanos, boolean hit) {
+		calls.increment();
+		if (hit) {
+			hits.increment();
+		}
+		totalNanos.add(nanos);
+		histogram[64 - Long.numberOfLeadingZeros(Math.max(0, nanos))].increment();
+	}
+
+	public Snapshot snapshot() {
+		long[] buckets = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = histogram[i].sum();
+		}
+		return new Snapshot(calls.sum(), hits.sum(), totalNanos.sum(), buckets);
+	}
+
+	// ある時点の値
+	public static class Snapshot {
+		private final long calls;
+		private final long hits;
+		private final long totalNanos;
+		private final long[] histogram;
+
+		Snapshot(long calls, long hits, long totalNanos, long[] histogram) {
+			this.calls = calls;
+			this.hits = hits;
+			this.totalNanos = totalNanos;
+			this.histogram = histogram;
+		}
+
+		public long getCalls() {
+			return calls;
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public double getHitRate() {
+			return calls == 0 ? 0 : (double) hits / calls;
+		}
+
+		public double getMeanNanos() {
+			return calls == 0 ? 0 : (double) totalNanos / calls;
+		}
+
+		// histogram[i] は 2^(i-1) 以上 2^i 未満ナノ秒の回数
+		public long[] getHistogram() {
+			return histogram.clone();
+		}
+
+		// 指定した割合（0～1）の呼び出しが収まる時間の上限
+		public long getPercentileNanos(double fraction) {
+			long target = (long) Math.ceil(calls * fraction);
+			long seen = 0;
+			for (int i = 0; i < histogram.length; i++) {
+				seen += histogram[i];
+				if (seen >= target && seen > 0) {
+					return i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : 1L << i);
+				}
+			}
+			return 0;
+		}
+
+		public String toString() {
+			return "[calls=" + calls + " hits=" + hits + " mean=" + (long) getMeanNanos() + "ns p99<" + getPercentileNanos(0.99) + "ns]";
+		}
+	}
+}
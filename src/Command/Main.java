@@ -1,41 +1,68 @@
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 
-import command.Command;
+import command.CommandJournal;
 import command.MacroCommand;
+import command.SpillingCommandStore;
 import drawer.DrawCanvas;
-import drawer.DrawCommand;
+import drawer.DrawCommandCodec;
+import drawer.PackedDrawStore;
+import drawer.StrokeCoalescer;
 
-public class Main extends JFrame implements ActionListener, MouseMotionListener, WindowListener {
+public class Main extends JFrame implements ActionListener, MouseListener, MouseMotionListener, WindowListener {
 
 	// 描画履歴
 	private MacroCommand history = new MacroCommand();
 	// 描画領域
 	private DrawCanvas canvas = new DrawCanvas(400, 400, history);
+	// ドラッグ中の点を1本の折れ線にまとめる（誤差1画素まで間引く）
+	private StrokeCoalescer stroke = new StrokeCoalescer(history, canvas, 1.0);
 	// アンドゥボタン
 	private JButton undoButton = new JButton("undo");
+	// リドゥボタン
+	private JButton redoButton = new JButton("redo");
 	// 消去ボタン
 	private JButton clearButton = new JButton("clear");
 
-	public Main(String title) {
+	public Main(String title, String journalFile) throws IOException {
 		super(title);
 
+		// 履歴と取り消した命令はそれぞれ直近10000命令だけをint配列に詰めてメモリに置き、古いものは一時ファイルへ退避
+		DrawCommandCodec codec = new DrawCommandCodec(canvas);
+		history.setStores(new SpillingCommandStore(new PackedDrawStore(), 10000, codec, tempFile("history")),
+				new SpillingCommandStore(new PackedDrawStore(), 10000, codec, tempFile("redo")));
+		// 点1000個・折れ線の頂点1000個分ごとに途中経過を保存（最大32MB）
+		history.setCheckpointer(canvas, 1000, 32L * 1024 * 1024);
+		// 記録ファイルが指定されていれば前回の描画を復元し、以後の操作を記録
+		if (journalFile != null) {
+			history.setJournal(new CommandJournal(Paths.get(journalFile), codec, 10));
+			canvas.rebuild();
+		}
+
 		this.addWindowListener(this);
+		canvas.addMouseListener(this);
 		canvas.addMouseMotionListener(this);
 		undoButton.addActionListener(this);
+		redoButton.addActionListener(this);
 		clearButton.addActionListener(this);
 
 		Box buttonBox = new Box(BoxLayout.X_AXIS);
 		buttonBox.add(undoButton);
+		buttonBox.add(redoButton);
 		buttonBox.add(clearButton);
 		Box mainBox = new Box(BoxLayout.Y_AXIS);
 		mainBox.add(buttonBox);
@@ -51,21 +78,40 @@ public class Main extends JFrame implements ActionListener, MouseMotionListener,
 		Object source = e.getSource();
 		if (source == undoButton) {
 			history.undo();
-			canvas.repaint();
+			canvas.rebuild();
+		} else if (source == redoButton) {
+			history.redo();
+			canvas.rebuild();
 		} else if (source == clearButton) {
 			history.clear();
-			canvas.repaint();
+			canvas.rebuild();
 		}
 	}
 
+	// MouseListener用
+	public void mousePressed(MouseEvent e) {
+		stroke.add(e.getX(), e.getY());
+	}
+
+	public void mouseReleased(MouseEvent e) {
+		stroke.end();
+	}
+
+	public void mouseClicked(MouseEvent e) {
+	}
+
+	public void mouseEntered(MouseEvent e) {
+	}
+
+	public void mouseExited(MouseEvent e) {
+	}
+
 	// MouseMotionListener用
 	public void mouseMoved(MouseEvent e) {
 	}
 
 	public void mouseDragged(MouseEvent e) {
-		Command cmd = new DrawCommand(canvas, e.getPoint());
-		history.append(cmd);
-		cmd.execute();
+		stroke.add(e.getX(), e.getY());
 	}
 
 	// WindowListener用
@@ -90,7 +136,13 @@ public class Main extends JFrame implements ActionListener, MouseMotionListener,
 	public void windowOpened(WindowEvent e) {
 	}
 
-	public static void main(String[] args) {
-		new Main("Command Pattern Sample");
+	private static Path tempFile(String prefix) throws IOException {
+		Path file = Files.createTempFile(prefix, ".spill");
+		file.toFile().deleteOnExit();
+		return file;
+	}
+
+	public static void main(String[] args) throws IOException {
+		new Main("Command Pattern Sample", args.length > 0 ? args[0] : null);
 	}
 }
@@ -0,0 +1,11 @@
+package command;
+
+// 途中までの実行結果を保存・復元する
+public interface Checkpointer<S> {
+	// 現在の状態を保存する
+	public abstract S save();
+	// 保存した状態に戻す
+	public abstract void restore(S checkpoint);
+	// 保存した状態が使うメモリ量（バイト）
+	public abstract long sizeOf(S checkpoint);
+}
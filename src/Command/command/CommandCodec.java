@@ -0,0 +1,9 @@
+package command;
+
+import java.nio.ByteBuffer;
+
+// 命令とバイト列の相互変換
+public interface CommandCodec {
+	public abstract void encode(Command cmd, ByteBuffer buffer);
+	public abstract Command decode(ByteBuffer buffer);
+}
@@ -0,0 +1,463 @@
+package command;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// MacroCommandへの操作を追記していくファイル
+// 1件は [種別 1byte][データ長 4byte][データ]。種別は最後に書くので、書きかけの記録は0のまま残り末尾とみなされる
+public class CommandJournal implements AutoCloseable {
+
+	static final byte END = 0;
+	static final byte APPEND = 1;
+	static final byte UNDO = 2;
+	static final byte CLEAR = 3;
+	static final byte REDO = 4;
+
+	private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+	private static final int MAX_RECORD = 64 * 1024;
+	// 記録数がこれを超え、かつ生きている命令の2倍を超えたら詰め直す
+	private static final long COMPACT_THRESHOLD = 100_000;
+	// 詰め直しの最後にロックしたまま写す追記分の上限
+	private static final long CATCH_UP = 256 * 1024;
+
+	private final Path file;
+	private final CommandCodec codec;
+	private FileChannel channel;
+	private MappedByteBuffer window;
+	// 使い終わってまだディスクへ書き出していない領域（書き出しはflush() で行う）
+	private final ArrayList<MappedByteBuffer> retired = new ArrayList<>();
+	// 次に書き込む位置
+	private long position;
+	private final ByteBuffer scratch = ByteBuffer.allocate(MAX_RECORD);
+	// 記録の総数と、その結果として残っている命令・取り消された命令の数
+	private long records;
+	private long live;
+	private long undone;
+	private volatile boolean dirty;
+	private final ScheduledExecutorService background;
+	// compact() を同時に1つだけ実行するためのロック
+	private final Object compacting = new Object();
+	// バックグラウンドでの書き出し・詰め直しの失敗（次の追記かclose() で報告する）
+	private IOException failure;
+
+	// flushMillisごとにまとめてディスクへ書き出す
+	public CommandJournal(Path file, CommandCodec codec, long flushMillis) throws IOException {
+		this.file = file;
+		this.codec = codec;
+		open();
+		this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "CommandJournal-" + file.getFileName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		background.scheduleWithFixedDelay(this::flushAndCompact, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+	}
+
+	// 記録をhistoryへ適用して状態を復元する（記録中の操作は記録しない）
+	public synchronized void replay(MacroCommand history) throws IOException {
+		try (DataInputStream in = reader(channel)) {
+			ByteBuffer payload = ByteBuffer.allocate(MAX_RECORD);
+			for (long read = 0; read < position;) {
+				byte type = in.readByte();
+				int length = in.readInt();
+				payload.clear().limit(length);
+				in.readFully(payload.array(), 0, length);
+				read += 5 + length;
+				switch (type) {
+				case APPEND:
+					history.append(codec.decode(payload));
+					break;
+				case UNDO:
+					history.undoCommand();
+					break;
+				case CLEAR:
+					history.clear();
+					break;
+				case REDO:
+					history.redoCommand();
+					break;
+				}
+			}
+		}
+	}
+
+	public synchronized void append(Command cmd) {
+		scratch.clear();
+		codec.encode(cmd, scratch);
+		scratch.flip();
+		write(APPEND, scratch);
+		count(APPEND);
+		reportFailure();
+	}
+
+	public synchronized void undo() {
+		write(UNDO, null);
+		count(UNDO);
+		reportFailure();
+	}
+
+	public synchronized void redo() {
+		write(REDO, null);
+		count(REDO);
+		reportFailure();
+	}
+
+	public synchronized void clear() {
+		write(CLEAR, null);
+		count(CLEAR);
+		reportFailure();
+	}
+
+	// 書き込んだ内容をディスクへ書き出す（使い終わった領域も含む）
+	public void flush() {
+		MappedByteBuffer current;
+		MappedByteBuffer[] previous;
+		synchronized (this) {
+			current = window;
+			previous = retired.toArray(new MappedByteBuffer[0]);
+			retired.clear();
+			dirty = false;
+		}
+		for (MappedByteBuffer buffer : previous) {
+			buffer.force();
+		}
+		if (current != null) {
+			current.force();
+		}
+	}
+
+	// 上書き・消去された命令を除いてファイルを作り直す
+	// 取り消された命令は、追加してから取り消す記録として残す
+	// 読み直し・書き出し・ディスクへの書き出しと次の領域のマップはロックの外で行い、
+	// ロック中はその間に追記された分を写して差し替えるだけにする
+	// 差し替えはマップしたままのファイルを置き換えるので、Linux などPOSIX系のOS専用
+	// 途中で失敗したときは元のファイルをそのまま使い続ける
+	public void compact() throws IOException {
+		synchronized (compacting) {
+			FileChannel source;
+			long end;
+			long recordsAtEnd;
+			synchronized (this) {
+				source = channel;
+				end = position;
+				recordsAtEnd = records;
+			}
+			// end より前の記録は書き換えられないので、ロックなしで読める
+			long[][] offsets = liveOffsets(source, end);
+			Path temp = file.resolveSibling(file.getFileName() + ".compact");
+			FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			boolean swapped = false;
+			try {
+				copyRecords(source, offsets[0], out);
+				copyRecords(source, offsets[1], out);
+				ByteBuffer undo = ByteBuffer.allocate(5);
+				for (int i = 0; i < offsets[1].length; i++) {
+					undo.clear();
+					undo.put(UNDO).putInt(0).flip();
+					while (undo.hasRemaining()) {
+						out.write(undo);
+					}
+				}
+				long compacted = offsets[0].length + offsets[1].length * 2L;
+				// 読み直している間に追記された記録をそのまま後ろへ写す（残りが少なくなるまではロックの外で）
+				long copied = end;
+				long size = out.position();
+				while (true) {
+					out.force(true);
+					// 残りはこの領域へ写し、そのまま以後の追記先にする
+					MappedByteBuffer next = out.map(FileChannel.MapMode.READ_WRITE, size, WINDOW_SIZE);
+					long target;
+					synchronized (this) {
+						if (channel != source || !channel.isOpen()) {
+							// 途中で閉じられた
+							return;
+						}
+						target = position;
+						if (target - copied <= CATCH_UP) {
+							next.limit((int) (target - copied));
+							readFully(source, next, copied);
+							next.limit(next.capacity());
+							Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+							// ここから先は失敗しない。古いファイルの内容はすべて写したので、古い領域は書き出さずに捨てる
+							retired.clear();
+							channel = out;
+							window = next;
+							position = size + target - copied;
+							records = compacted + records - recordsAtEnd;
+							dirty = true;
+							swapped = true;
+						}
+					}
+					if (swapped) {
+						source.close();
+						return;
+					}
+					copyRange(source, copied, target, out);
+					size += target - copied;
+					copied = target;
+				}
+			} finally {
+				if (!swapped) {
+					out.close();
+					Files.deleteIfExists(temp);
+				}
+			}
+		}
+	}
+
+	public void close() throws IOException {
+		background.shutdown();
+		try {
+			background.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			closeChannel();
+			if (failure != null) {
+				IOException e = failure;
+				failure = null;
+				throw e;
+			}
+		}
+	}
+
+	private void write(byte type, ByteBuffer payload) {
+		int length = payload == null ? 0 : payload.remaining();
+		if (window == null || window.remaining() < 5 + length) {
+			map(position);
+		}
+		int start = window.position();
+		window.put(start, END);
+		window.position(start + 1);
+		window.putInt(length);
+		if (payload != null) {
+			window.put(payload);
+		}
+		// 種別を最後に書いて記録を確定させる
+		window.put(start, type);
+		position += 5 + length;
+		records++;
+		dirty = true;
+	}
+
+	// 使い終わった領域のディスクへの書き出しはflush() に任せる
+	private void map(long at) {
+		try {
+			if (window != null) {
+				retired.add(window);
+			}
+			window = channel.map(FileChannel.MapMode.READ_WRITE, at, WINDOW_SIZE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// ファイルを開き、正しく書き終わっている記録の末尾を探す
+	private void open() throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		position = 0;
+		records = 0;
+		live = 0;
+		undone = 0;
+		long size = channel.size();
+		try (DataInputStream in = reader(channel)) {
+			while (position + 5 <= size) {
+				byte type = in.readByte();
+				int length = in.readInt();
+				if (type == END || length < 0 || length > MAX_RECORD || position + 5 + length > size) {
+					break;
+				}
+				in.skipNBytes(length);
+				position += 5 + length;
+				records++;
+				count(type);
+			}
+		} catch (EOFException e) {
+			// 途中で途切れた記録は無視する
+		}
+		window = null;
+		map(position);
+	}
+
+	private void closeChannel() throws IOException {
+		for (MappedByteBuffer buffer : retired) {
+			buffer.force();
+		}
+		retired.clear();
+		if (window != null) {
+			window.force();
+			window = null;
+		}
+		channel.truncate(position);
+		channel.close();
+	}
+
+	// 記録1件が残っている命令・取り消された命令の数に与える影響
+	private void count(byte type) {
+		if (type == APPEND) {
+			live++;
+			undone = 0;
+		} else if (type == UNDO && live > 0) {
+			live--;
+			undone++;
+		} else if (type == REDO && undone > 0) {
+			undone--;
+			live++;
+		} else if (type == CLEAR) {
+			live = 0;
+			undone = 0;
+		}
+	}
+
+	// 現在残っている命令のAPPEND記録の位置と、取り消された命令のAPPEND記録の位置（最後に取り消したものから順）
+	private long[][] liveOffsets(FileChannel source, long end) throws IOException {
+		long[] stack = new long[1024];
+		int size = 0;
+		long[] redo = new long[16];
+		int redoSize = 0;
+		try (DataInputStream in = reader(source)) {
+			for (long read = 0; read < end;) {
+				byte type = in.readByte();
+				int length = in.readInt();
+				in.skipNBytes(length);
+				if (type == APPEND) {
+					if (size == stack.length) {
+						stack = Arrays.copyOf(stack, size * 2);
+					}
+					stack[size++] = read;
+					redoSize = 0;
+				} else if (type == UNDO && size > 0) {
+					if (redoSize == redo.length) {
+						redo = Arrays.copyOf(redo, redoSize * 2);
+					}
+					redo[redoSize++] = stack[--size];
+				} else if (type == REDO && redoSize > 0) {
+					if (size == stack.length) {
+						stack = Arrays.copyOf(stack, size * 2);
+					}
+					stack[size++] = redo[--redoSize];
+				} else if (type == CLEAR) {
+					size = 0;
+					redoSize = 0;
+				}
+				read += 5 + length;
+			}
+		}
+		long[] undoneOffsets = new long[redoSize];
+		for (int i = 0; i < redoSize; i++) {
+			undoneOffsets[i] = redo[redoSize - 1 - i];
+		}
+		return new long[][] { Arrays.copyOf(stack, size), undoneOffsets };
+	}
+
+	private void copyRecords(FileChannel source, long[] offsets, FileChannel out) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(5);
+		for (int i = 0; i < offsets.length; i++) {
+			header.clear();
+			readFully(source, header, offsets[i]);
+			int length = header.getInt(1);
+			ByteBuffer record = ByteBuffer.allocate(5 + length);
+			readFully(source, record, offsets[i]);
+			record.flip();
+			while (record.hasRemaining()) {
+				out.write(record);
+			}
+		}
+	}
+
+	// 先頭から読む（チャネルの位置は変えず、クローズもしない）
+	private static void copyRange(FileChannel source, long from, long to, FileChannel out) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		for (long at = from; at < to;) {
+			buffer.clear().limit((int) Math.min(buffer.capacity(), to - at));
+			readFully(source, buffer, at);
+			at += buffer.position();
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+		}
+	}
+
+	private static DataInputStream reader(FileChannel source) {
+		InputStream in = new InputStream() {
+			private long at;
+
+			public int read() throws IOException {
+				byte[] one = new byte[1];
+				return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+			}
+
+			public int read(byte[] b, int off, int len) throws IOException {
+				int n = source.read(ByteBuffer.wrap(b, off, len), at);
+				if (n > 0) {
+					at += n;
+				}
+				return n;
+			}
+		};
+		return new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+	}
+
+	private static void readFully(FileChannel source, ByteBuffer buffer, long at) throws IOException {
+		while (buffer.hasRemaining()) {
+			int n = source.read(buffer, at + buffer.position());
+			if (n < 0) {
+				throw new EOFException();
+			}
+		}
+	}
+
+	// 記録しておいた失敗を一度だけ報告する
+	private void reportFailure() {
+		if (failure != null) {
+			IOException e = failure;
+			failure = null;
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void flushAndCompact() {
+		try {
+			if (dirty) {
+				flush();
+			}
+			boolean compact;
+			synchronized (this) {
+				compact = records > COMPACT_THRESHOLD && records > (live + undone * 2) * 2;
+			}
+			if (compact) {
+				compact();
+			}
+		} catch (IOException e) {
+			recordFailure(e);
+		} catch (UncheckedIOException e) {
+			recordFailure(e.getCause());
+		}
+	}
+
+	private synchronized void recordFailure(IOException e) {
+		if (failure == null) {
+			failure = e;
+		} else {
+			failure.addSuppressed(e);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package command;
+
+import java.nio.ByteBuffer;
+
+// MacroCommandが命令を保持する方法
+public interface CommandStore {
+	public abstract int size();
+	public abstract void push(Command cmd);
+	// 最後の命令を取り出す
+	public abstract Command pop();
+	public abstract void clear();
+	// from番目からto番目の手前までを順に実行
+	public abstract void execute(int from, int to);
+
+	// 古い方からn命令を取り除き、古い順に1命令ずつcodecの形式でoutへ書き出す
+	// 既定ではいったんすべて取り出して命令に戻すので、命令を詰めて保持する実装は直接書き出すこと
+	public default void removeOldest(int n, CommandCodec codec, RecordWriter out) {
+		int count = size();
+		Command[] all = new Command[count];
+		for (int i = count - 1; i >= 0; i--) {
+			all[i] = pop();
+		}
+		for (int i = 0; i < n; i++) {
+			codec.encode(all[i], out.begin());
+			out.end();
+		}
+		for (int i = n; i < count; i++) {
+			push(all[i]);
+		}
+	}
+
+	// codecの形式で書かれた1命令を末尾に積む
+	public default void pushEncoded(CommandCodec codec, ByteBuffer buffer) {
+		push(codec.decode(buffer));
+	}
+
+	// removeOldest で取り除いた命令の書き出し先
+	public interface RecordWriter {
+		// 1命令を書き込むバッファを返す（1命令の最大長以上の空きがある）
+		public abstract ByteBuffer begin();
+		// begin() のあとに書き込んだ1命令を確定する
+		public abstract void end();
+	}
+}
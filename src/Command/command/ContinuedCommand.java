@@ -0,0 +1,7 @@
+package command;
+
+// 直前の命令の続きで、取り消し・再実行のときは直前の命令とまとめて1回の操作として扱う命令
+public interface ContinuedCommand extends Command {
+	// 直前の命令の続きならtrue
+	public abstract boolean isContinued();
+}
@@ -1,17 +1,83 @@
 package command;
 
-import java.util.Iterator;
-import java.util.Stack;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 public class MacroCommand implements Command {
 
 	// 命令の集合
-	private Stack commands = new Stack();
+	private CommandStore commands;
+	// 取り消した命令（最後に取り消したものが末尾）
+	private CommandStore undone;
+	// 保存済みの途中経過（保存しない場合はnull）
+	private Checkpoints<?> checkpoints;
+	// 実行の手間（WeightedCommand.weight()、ふつうの命令は1）がどれだけたまるごとに保存するか
+	private int interval;
+	// 途中経過を保存する位置（昇順）と、最後の位置より後の命令の手間の合計
+	private int[] boundaries = new int[16];
+	private int boundaryCount;
+	private long pendingWeight;
+	// 操作の記録先
+	private CommandJournal journal;
+
+	public MacroCommand() {
+		this(new StackCommandStore());
+	}
+
+	public MacroCommand(CommandStore commands) {
+		this(commands, new StackCommandStore());
+	}
+
+	public MacroCommand(CommandStore commands, CommandStore undone) {
+		this.commands = commands;
+		this.undone = undone;
+	}
+
+	// 命令の保持方法を差し替える（それまでの履歴は捨てる）
+	public void setStores(CommandStore commands, CommandStore undone) {
+		clear();
+		this.commands = commands;
+		this.undone = undone;
+	}
+
+	// 記録から状態を復元し、以後の操作を記録する
+	public void setJournal(CommandJournal journal) throws IOException {
+		this.journal = null;
+		clear();
+		if (journal != null) {
+			journal.replay(this);
+		}
+		this.journal = journal;
+	}
+
+	// 実行の手間がintervalたまるごとに途中経過を保存し、再実行をそこから始める
+	// 保存する位置は追加するときに決めるので、命令を追加する前に呼ぶこと
+	public <S> void setCheckpointer(Checkpointer<S> checkpointer, int interval, long budget) {
+		this.checkpoints = checkpointer == null ? null : new Checkpoints<>(checkpointer, budget);
+		this.interval = Math.max(1, interval);
+	}
 
 	public void execute() {
-		Iterator it = commands.iterator();
-		while (it.hasNext()) {
-			((Command) it.next()).execute();
+		if (checkpoints == null) {
+			commands.execute(0, commands.size());
+			return;
+		}
+		// 保存する位置ごとに区切って実行
+		int start = checkpoints.restoreLatest();
+		int size = commands.size();
+		int next = 0;
+		while (next < boundaryCount && boundaries[next] <= start) {
+			next++;
+		}
+		while (start < size) {
+			int end = next < boundaryCount ? Math.min(size, boundaries[next]) : size;
+			commands.execute(start, end);
+			if (next < boundaryCount && end == boundaries[next]) {
+				checkpoints.save(end);
+				next++;
+			}
+			start = end;
 		}
 	}
 
@@ -19,18 +85,179 @@ public class MacroCommand implements Command {
 	public void append(Command cmd) {
 		if (cmd != this) {
 			commands.push(cmd);
+			addWeight(cmd);
+			// 取り消した命令は戻せなくなる（空のときは何もしない）
+			if (undone.size() > 0) {
+				undone.clear();
+			}
+			if (journal != null) {
+				journal.append(cmd);
+			}
 		}
 	}
 
-	// 最後の命令を削除
+	// 最後の操作を削除（続きの命令はまとめて削除する）
 	public void undo() {
-		if (!commands.empty()) {
-			commands.pop();
+		Command cmd;
+		do {
+			cmd = undoCommand();
+		} while (isContinued(cmd));
+	}
+
+	// 最後に取り消した操作を戻す（続きの命令はまとめて戻す）
+	public void redo() {
+		if (undone.size() == 0) {
+			return;
+		}
+		redoCommand(undone.pop());
+		while (undone.size() > 0) {
+			Command cmd = undone.pop();
+			if (!isContinued(cmd)) {
+				undone.push(cmd);
+				break;
+			}
+			redoCommand(cmd);
+		}
+	}
+
+	// 最後の命令を1つだけ削除（記録は命令単位なので、再生もこれで行う）
+	Command undoCommand() {
+		if (commands.size() == 0) {
+			return null;
+		}
+		Command cmd = commands.pop();
+		undone.push(cmd);
+		removeWeight(cmd);
+		discardCheckpoints(commands.size());
+		if (journal != null) {
+			journal.undo();
+		}
+		return cmd;
+	}
+
+	// 最後に取り消した命令を1つだけ戻す
+	void redoCommand() {
+		if (undone.size() > 0) {
+			redoCommand(undone.pop());
+		}
+	}
+
+	private void redoCommand(Command cmd) {
+		commands.push(cmd);
+		addWeight(cmd);
+		if (journal != null) {
+			journal.redo();
 		}
 	}
 
 	// 全部削除
 	public void clear() {
 		commands.clear();
+		undone.clear();
+		boundaryCount = 0;
+		pendingWeight = 0;
+		discardCheckpoints(0);
+		if (journal != null) {
+			journal.clear();
+		}
+	}
+
+	private static boolean isContinued(Command cmd) {
+		return cmd instanceof ContinuedCommand && ((ContinuedCommand) cmd).isContinued();
+	}
+
+	// 追加した命令の手間を加え、intervalに達したらその位置を保存する位置にする
+	private void addWeight(Command cmd) {
+		if (checkpoints == null) {
+			return;
+		}
+		pendingWeight += weightOf(cmd);
+		if (pendingWeight >= interval) {
+			if (boundaryCount == boundaries.length) {
+				boundaries = Arrays.copyOf(boundaries, boundaryCount * 2);
+			}
+			boundaries[boundaryCount++] = commands.size();
+			pendingWeight = 0;
+		}
+	}
+
+	// 取り除いた命令の手間を引く（保存する位置を越えて戻ったら、その位置から数え直す）
+	private void removeWeight(Command cmd) {
+		if (checkpoints == null) {
+			return;
+		}
+		if (boundaryCount > 0 && boundaries[boundaryCount - 1] > commands.size()) {
+			boundaryCount--;
+			pendingWeight = 0;
+		} else {
+			pendingWeight = Math.max(0, pendingWeight - weightOf(cmd));
+		}
+	}
+
+	private static int weightOf(Command cmd) {
+		return cmd instanceof WeightedCommand ? ((WeightedCommand) cmd).weight() : 1;
+	}
+
+	private void discardCheckpoints(int position) {
+		if (checkpoints != null) {
+			checkpoints.discard(position);
+		}
+	}
+
+	// 保存済みの途中経過（位置の昇順）
+	private static class Checkpoints<S> {
+		private final Checkpointer<S> checkpointer;
+		// 保存に使ってよいメモリ量
+		private final long budget;
+		private final ArrayList<Checkpoint<S>> list = new ArrayList<>();
+		private long bytes;
+
+		Checkpoints(Checkpointer<S> checkpointer, long budget) {
+			this.checkpointer = checkpointer;
+			this.budget = budget;
+		}
+
+		// 最後の途中経過に戻し、その位置を返す（なければ0）
+		int restoreLatest() {
+			if (list.isEmpty()) {
+				return 0;
+			}
+			Checkpoint<S> checkpoint = list.get(list.size() - 1);
+			checkpointer.restore(checkpoint.state);
+			return checkpoint.position;
+		}
+
+		void save(int position) {
+			S state = checkpointer.save();
+			long size = checkpointer.sizeOf(state);
+			if (size > budget) {
+				return;
+			}
+			list.add(new Checkpoint<>(position, state, size));
+			bytes += size;
+			// 上限を超えたら古いものから捨てる
+			while (bytes > budget) {
+				bytes -= list.remove(0).size;
+			}
+		}
+
+		// position より後の命令を含む途中経過を捨てる
+		void discard(int position) {
+			while (!list.isEmpty() && list.get(list.size() - 1).position > position) {
+				bytes -= list.remove(list.size() - 1).size;
+			}
+		}
+	}
+
+	private static class Checkpoint<S> {
+		final int position;
+		final S state;
+		final long size;
+
+		Checkpoint(int position, S state, long size) {
+			this.position = position;
+			this.state = state;
+			this.size = size;
+		}
 	}
 }
@@ -0,0 +1,236 @@
+package command;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// 新しい命令だけをメモリ上のCommandStore（PackedDrawStoreなど）に置き、あふれた古い命令はファイルへ退避する
+// ファイルは [データ長 4byte][データ][データ長 4byte] を積み重ねたスタックで、末尾から逆向きにも読める
+// 退避と読み戻しは半分ずつまとめて行うので、push/pop は償却O(1)でメモリ上の命令数は一定になる
+// 退避と読み戻しはresidentとバイト列を直接やり取りする（removeOldest・pushEncoded）ので、命令オブジェクトを作らない
+public class SpillingCommandStore implements CommandStore, AutoCloseable {
+
+	private static final int MAX_RECORD = 64 * 1024;
+	private static final int BLOCK_SIZE = 256 * 1024;
+	// 何命令ごとにファイル上の位置を覚えておくか
+	private static final int MARK_INTERVAL = 4096;
+
+	private final int capacity;
+	private final CommandCodec codec;
+	private final Path file;
+	private final FileChannel channel;
+	// メモリ上の命令（ファイル上の命令より新しい）
+	private final CommandStore resident;
+	// 退避する命令をblockへ書き込む
+	private final Writer writer = new Writer();
+	// ファイルへ退避した命令の数と、ファイルの使用済みの長さ
+	private int spilled;
+	private long end;
+	// MARK_INTERVAL命令ごとの記録の開始位置
+	private long[] marks = new long[16];
+	private final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+
+	public SpillingCommandStore(int capacity, CommandCodec codec, Path file) throws IOException {
+		this(new StackCommandStore(), capacity, codec, file);
+	}
+
+	// メモリ上の命令をresidentに保持する（residentは空であること）
+	public SpillingCommandStore(CommandStore resident, int capacity, CommandCodec codec, Path file) throws IOException {
+		if (capacity < 2) {
+			throw new IllegalArgumentException("capacity は2以上にしてください: " + capacity);
+		}
+		this.capacity = capacity;
+		this.codec = codec;
+		this.file = file;
+		this.resident = resident;
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	public int size() {
+		return spilled + resident.size();
+	}
+
+	// メモリ上にある命令の数
+	public int residentSize() {
+		return resident.size();
+	}
+
+	public void push(Command cmd) {
+		if (resident.size() == capacity) {
+			spill(capacity / 2);
+		}
+		resident.push(cmd);
+	}
+
+	public Command pop() {
+		if (resident.size() == 0) {
+			if (spilled == 0) {
+				throw new IllegalStateException("命令がありません。");
+			}
+			load(capacity / 2);
+		}
+		return resident.pop();
+	}
+
+	public void clear() {
+		if (size() == 0 && end == 0) {
+			return;
+		}
+		resident.clear();
+		spilled = 0;
+		end = 0;
+		try {
+			channel.truncate(0);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void execute(int from, int to) {
+		if (from < spilled) {
+			executeSpilled(from, Math.min(to, spilled));
+		}
+		if (to > spilled) {
+			resident.execute(Math.max(from, spilled) - spilled, to - spilled);
+		}
+	}
+
+	// ファイルを閉じて削除する
+	public void close() throws IOException {
+		channel.close();
+		Files.deleteIfExists(file);
+	}
+
+	// 古い方からn命令をファイルの末尾へ書き出す
+	private void spill(int n) {
+		block.clear();
+		writer.at = end;
+		resident.removeOldest(n, codec, writer);
+		block.flip();
+		end = writer.at + write(block, writer.at);
+	}
+
+	// ファイルの末尾からn命令を読み戻してresidentへ積む（residentが空のときに呼ぶ）
+	private void load(int n) {
+		// 後ろから記録の長さをたどって、読み戻す最初の記録の位置を探す
+		long from = end;
+		int found = 0;
+		while (found < n && found < spilled) {
+			long start = Math.max(0, from - BLOCK_SIZE);
+			block.clear().limit((int) (from - start));
+			read(block, start);
+			int p = block.limit();
+			// ブロック内に丸ごと入っている記録だけを後ろからたどる
+			while (found < n && found < spilled && p >= 8) {
+				int length = block.getInt(p - 4);
+				int recordStart = p - 8 - length;
+				if (recordStart < 0) {
+					break;
+				}
+				found++;
+				from -= 8 + length;
+				p = recordStart;
+			}
+		}
+		// 古い順に読んで積む
+		forEachRecord(from, 0, found, record -> resident.pushEncoded(codec, record));
+		spilled -= found;
+		end = from;
+	}
+
+	// ファイル上のfrom番目からto番目の手前までを順に読んで実行
+	private void executeSpilled(int from, int to) {
+		forEachRecord(marks[from / MARK_INTERVAL], from % MARK_INTERVAL, to - from, record -> codec.decode(record).execute());
+	}
+
+	// ファイル上のatから始まる記録をskip件飛ばし、続くcount件を順にactionへ渡す
+	private void forEachRecord(long at, int skip, int count, Consumer<ByteBuffer> action) {
+		int index = 0;
+		while (index < skip + count) {
+			block.clear().limit((int) Math.min(BLOCK_SIZE, end - at));
+			read(block, at);
+			int filled = block.limit();
+			int p = 0;
+			// ブロック内に丸ごと入っている記録だけを前から読む
+			while (index < skip + count && p + 4 <= filled) {
+				int length = block.getInt(p);
+				if (p + 8 + length > filled) {
+					break;
+				}
+				if (index >= skip) {
+					block.limit(p + 4 + length).position(p + 4);
+					action.accept(block.slice());
+					block.limit(filled);
+				}
+				p += 8 + length;
+				index++;
+			}
+			at += p;
+		}
+	}
+
+	private int write(ByteBuffer buffer, long at) {
+		int written = 0;
+		try {
+			while (buffer.hasRemaining()) {
+				written += channel.write(buffer, at + written);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return written;
+	}
+
+	private void read(ByteBuffer buffer, long at) {
+		try {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, at + buffer.position()) < 0) {
+					throw new EOFException();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buffer.flip();
+	}
+
+	// 1命令ずつ [データ長][データ][データ長] としてblockへ書き込み、いっぱいになったらファイルへ書き出す
+	private class Writer implements CommandStore.RecordWriter {
+		// blockの先頭に対応するファイル上の位置
+		long at;
+		// 書き込み中の記録の開始位置
+		private int start;
+
+		public ByteBuffer begin() {
+			if (block.remaining() < 8 + MAX_RECORD) {
+				block.flip();
+				at += write(block, at);
+				block.clear();
+			}
+			if (spilled % MARK_INTERVAL == 0) {
+				int mark = spilled / MARK_INTERVAL;
+				if (mark == marks.length) {
+					marks = Arrays.copyOf(marks, mark * 2);
+				}
+				marks[mark] = at + block.position();
+			}
+			start = block.position();
+			block.position(start + 4);
+			return block;
+		}
+
+		public void end() {
+			int length = block.position() - start - 4;
+			block.putInt(start, length);
+			block.putInt(length);
+			spilled++;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package command;
+
+import java.util.Stack;
+
+// 命令オブジェクトをそのまま積んでおく
+public class StackCommandStore implements CommandStore {
+
+	private Stack commands = new Stack();
+
+	public int size() {
+		return commands.size();
+	}
+
+	public void push(Command cmd) {
+		commands.push(cmd);
+	}
+
+	public Command pop() {
+		return (Command) commands.pop();
+	}
+
+	public void clear() {
+		commands.clear();
+	}
+
+	public void execute(int from, int to) {
+		for (int i = from; i < to; i++) {
+			((Command) commands.get(i)).execute();
+		}
+	}
+
+	public void removeOldest(int n, CommandCodec codec, RecordWriter out) {
+		for (int i = 0; i < n; i++) {
+			codec.encode((Command) commands.get(i), out.begin());
+			out.end();
+		}
+		commands.subList(0, n).clear();
+	}
+}
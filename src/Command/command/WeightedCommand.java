@@ -0,0 +1,7 @@
+package command;
+
+// 実行の手間が命令ごとに大きく異なる命令（MacroCommandが途中経過を保存する間隔を決めるのに使う）
+public interface WeightedCommand extends Command {
+	// 実行の手間の目安（ふつうの命令を1とする）
+	public abstract int weight();
+}
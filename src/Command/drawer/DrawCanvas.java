@@ -3,10 +3,17 @@ package drawer;
 import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 
+import javax.swing.Timer;
+
+import command.Checkpointer;
 import command.MacroCommand;
 
-public class DrawCanvas extends Canvas implements Drawable {
+public class DrawCanvas extends Canvas implements Drawable, Checkpointer<int[]> {
+
+	// 画面へ反映する間隔（ミリ秒）
+	private static final int FRAME_MILLIS = 16;
 
 	// 描画色
 	private Color color = Color.red;
@@ -14,22 +21,62 @@ public class DrawCanvas extends Canvas implements Drawable {
 	private int radius = 6;
 	// 履歴
 	private MacroCommand history;
+	// 描画内容（画面とは別に保持する）
+	private RasterCanvas raster;
 
 	public DrawCanvas(int width, int height, MacroCommand history) {
 		setSize(width, height);
 		setBackground(Color.white);
 		this.history = history;
+		this.raster = new RasterCanvas(width, height, Color.white, color, radius);
+		// 変更のあった範囲だけを1フレームに1回画面へ写す
+		new Timer(FRAME_MILLIS, e -> {
+			Rectangle dirty = raster.takeDirty();
+			if (dirty != null) {
+				repaint(dirty.x, dirty.y, dirty.width, dirty.height);
+			}
+		}).start();
 	}
 
-	// 履歴全体を再描画
-	public void paint(Graphics g) {
+	// 履歴全体から描き直す（取り消しや消去の後に呼ぶ）
+	public void rebuild() {
+		raster.clear();
 		history.execute();
+		repaint();
+	}
+
+	// 描画内容を画面へ写す
+	public void paint(Graphics g) {
+		g.drawImage(raster.getImage(), 0, 0, null);
+	}
+
+	// 背景の塗りつぶしによるちらつきを防ぐ
+	public void update(Graphics g) {
+		paint(g);
 	}
 
 	// 描画
 	public void draw(int x, int y) {
-		Graphics g = getGraphics();
-		g.setColor(color);
-		g.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+		raster.draw(x, y);
+	}
+
+	public void drawPolyline(int[] xs, int[] ys, int count) {
+		raster.drawPolyline(xs, ys, count);
+	}
+
+	public void drawSegment(int ax, int ay, int bx, int by) {
+		raster.drawSegment(ax, ay, bx, by);
+	}
+
+	public int[] save() {
+		return raster.save();
+	}
+
+	public void restore(int[] checkpoint) {
+		raster.restore(checkpoint);
+	}
+
+	public long sizeOf(int[] checkpoint) {
+		return raster.sizeOf(checkpoint);
 	}
 }
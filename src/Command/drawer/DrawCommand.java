@@ -16,6 +16,10 @@ public class DrawCommand implements Command {
 		this.position = position;
 	}
 
+	Point getPosition() {
+		return position;
+	}
+
 	public void execute() {
 		drawable.draw(position.x, position.y);
 	}
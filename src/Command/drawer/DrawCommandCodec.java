@@ -0,0 +1,63 @@
+package drawer;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+
+import command.Command;
+import command.CommandCodec;
+
+// DrawCommand・PolylineCommandを座標だけのバイト列にする（描画対象は復元時に指定したもの）
+// 点は [x][y]、折れ線は [POLYLINE][頂点数][x][y]... で、xとして現れない値を目印にする
+// ストロークの続きの折れ線は目印を POLYLINE_CONTINUED にする
+public class DrawCommandCodec implements CommandCodec {
+
+	static final int POLYLINE = Integer.MIN_VALUE;
+	static final int POLYLINE_CONTINUED = Integer.MIN_VALUE + 1;
+
+	private Drawable drawable;
+
+	public DrawCommandCodec(Drawable drawable) {
+		this.drawable = drawable;
+	}
+
+	// 復元した命令の描画対象
+	Drawable getDrawable() {
+		return drawable;
+	}
+
+	public void encode(Command cmd, ByteBuffer buffer) {
+		if (cmd instanceof PolylineCommand) {
+			int[] xs = ((PolylineCommand) cmd).getXs();
+			int[] ys = ((PolylineCommand) cmd).getYs();
+			buffer.putInt(((PolylineCommand) cmd).isContinued() ? POLYLINE_CONTINUED : POLYLINE);
+			buffer.putInt(xs.length);
+			for (int i = 0; i < xs.length; i++) {
+				buffer.putInt(xs[i]);
+				buffer.putInt(ys[i]);
+			}
+			return;
+		}
+		if (!(cmd instanceof DrawCommand)) {
+			throw new IllegalArgumentException("DrawCommand・PolylineCommand 以外は変換できません: " + cmd);
+		}
+		Point position = ((DrawCommand) cmd).getPosition();
+		buffer.putInt(position.x);
+		buffer.putInt(position.y);
+	}
+
+	public Command decode(ByteBuffer buffer) {
+		int x = buffer.getInt();
+		if (x == POLYLINE || x == POLYLINE_CONTINUED) {
+			int length = buffer.getInt();
+			int[] xs = new int[length];
+			int[] ys = new int[length];
+			for (int i = 0; i < length; i++) {
+				xs[i] = buffer.getInt();
+				ys[i] = buffer.getInt();
+			}
+			return new PolylineCommand(drawable, xs, ys, x == POLYLINE_CONTINUED);
+		}
+		int y = buffer.getInt();
+		return new DrawCommand(drawable, new Point(x, y));
+	}
+}
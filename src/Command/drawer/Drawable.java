@@ -2,4 +2,24 @@ package drawer;
 
 public interface Drawable {
 	public abstract void draw(int x, int y);
+
+	// 折れ線を描く（既定では線分上を1画素ずつ点で埋める）
+	public default void drawPolyline(int[] xs, int[] ys, int count) {
+		if (count > 0) {
+			draw(xs[0], ys[0]);
+		}
+		for (int i = 1; i < count; i++) {
+			drawSegment(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+		}
+	}
+
+	// 線分を描く（既定では始点を除いて1画素ずつ点で埋める）
+	public default void drawSegment(int ax, int ay, int bx, int by) {
+		int dx = bx - ax;
+		int dy = by - ay;
+		int steps = Math.max(Math.abs(dx), Math.abs(dy));
+		for (int s = 1; s <= steps; s++) {
+			draw(ax + dx * s / steps, ay + dy * s / steps);
+		}
+	}
 }
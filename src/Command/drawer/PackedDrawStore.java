@@ -0,0 +1,309 @@
+package drawer;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import command.Command;
+import command.CommandCodec;
+import command.CommandStore;
+
+// 描画命令をオブジェクトではなくint配列に詰めて保持する
+// 1命令は [種別・描画対象の番号・データ長] のintに続けて、点なら [x・y]、折れ線なら頂点ごとの [x・y] を並べる
+// 点1つは見出し・座標・開始位置の3つのintで12バイト（DrawCommandとPointのオブジェクトでは参照を含めて約50バイト）
+// 座標はx・yそれぞれ16ビット（-32768～32767）に詰めるので、範囲外の座標は保持できない
+public class PackedDrawStore implements CommandStore {
+
+	static final int DRAW = 1;
+	static final int POLYLINE = 2;
+	// 直前の命令と同じストロークの折れ線
+	static final int POLYLINE_CONTINUED = 3;
+
+	// 1つの塊のint数（命令は塊をまたがない）
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	// 配列の初期の大きさ（clear() でここまで縮める）
+	private static final int INITIAL_CHUNKS = 4;
+	private static final int INITIAL_STARTS = 1024;
+	private static final int INITIAL_DRAWABLES = 4;
+
+	private int[][] chunks = new int[INITIAL_CHUNKS][];
+	// 使用中の最後の塊と、その中の使用済みint数
+	private int chunk;
+	private int used;
+	// 各命令の開始位置（塊の番号 << CHUNK_BITS | 塊内の位置）
+	private int[] starts = new int[INITIAL_STARTS];
+	private int count;
+	// 描画対象（番号で参照する）
+	private Drawable[] drawables = new Drawable[INITIAL_DRAWABLES];
+	private int drawableCount;
+	// 折れ線を展開する作業用の配列
+	private int[] xs = new int[PolylineCommand.MAX_POINTS];
+	private int[] ys = new int[PolylineCommand.MAX_POINTS];
+
+	public PackedDrawStore() {
+		chunks[0] = new int[CHUNK_SIZE];
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public void push(Command cmd) {
+		if (cmd instanceof PolylineCommand) {
+			push((PolylineCommand) cmd);
+			return;
+		}
+		if (!(cmd instanceof DrawCommand)) {
+			throw new IllegalArgumentException("DrawCommand・PolylineCommand 以外は保持できません: " + cmd);
+		}
+		DrawCommand draw = (DrawCommand) cmd;
+		Point position = draw.getPosition();
+		checkRange(position.x, position.y);
+		int offset = reserve(2);
+		int[] data = chunks[chunk];
+		data[offset] = header(DRAW, indexOf(draw.drawable), 1);
+		data[offset + 1] = pack(position.x, position.y);
+	}
+
+	public Command pop() {
+		if (count == 0) {
+			throw new IllegalStateException("命令がありません。");
+		}
+		int start = starts[--count];
+		int[] data = chunks[start >>> CHUNK_BITS];
+		int offset = start & CHUNK_MASK;
+		int header = data[offset];
+		Command cmd;
+		if (opOf(header) != DRAW) {
+			int length = lengthOf(header);
+			int[] px = new int[length];
+			int[] py = new int[length];
+			unpack(data, offset + 1, length, px, py);
+			cmd = new PolylineCommand(drawables[drawableOf(header)], px, py, opOf(header) == POLYLINE_CONTINUED);
+		} else {
+			cmd = new DrawCommand(drawables[drawableOf(header)], new Point(unpackX(data[offset + 1]), unpackY(data[offset + 1])));
+		}
+		chunk = start >>> CHUNK_BITS;
+		used = offset;
+		releaseChunks();
+		return cmd;
+	}
+
+	// 伸ばした配列も初期の大きさに戻す
+	public void clear() {
+		int[] first = chunks[0];
+		chunks = new int[INITIAL_CHUNKS][];
+		chunks[0] = first;
+		chunk = 0;
+		used = 0;
+		starts = new int[INITIAL_STARTS];
+		count = 0;
+		drawables = new Drawable[INITIAL_DRAWABLES];
+		drawableCount = 0;
+	}
+
+	public void execute(int from, int to) {
+		for (int i = from; i < to; i++) {
+			int start = starts[i];
+			int[] data = chunks[start >>> CHUNK_BITS];
+			int offset = start & CHUNK_MASK;
+			int header = data[offset];
+			Drawable drawable = drawables[drawableOf(header)];
+			switch (opOf(header)) {
+			case DRAW:
+				drawable.draw(unpackX(data[offset + 1]), unpackY(data[offset + 1]));
+				break;
+			case POLYLINE:
+			case POLYLINE_CONTINUED:
+				int length = lengthOf(header);
+				unpack(data, offset + 1, length, xs, ys);
+				drawable.drawPolyline(xs, ys, length);
+				break;
+			}
+		}
+	}
+
+	// DrawCommandCodecの形式なら、命令オブジェクトを作らずに詰めた内容から直接書き出す
+	public void removeOldest(int n, CommandCodec codec, RecordWriter out) {
+		if (!(codec instanceof DrawCommandCodec)) {
+			CommandStore.super.removeOldest(n, codec, out);
+			return;
+		}
+		for (int i = 0; i < n; i++) {
+			int start = starts[i];
+			int[] data = chunks[start >>> CHUNK_BITS];
+			int offset = start & CHUNK_MASK;
+			int header = data[offset];
+			ByteBuffer buffer = out.begin();
+			if (opOf(header) == DRAW) {
+				buffer.putInt(unpackX(data[offset + 1]));
+				buffer.putInt(unpackY(data[offset + 1]));
+			} else {
+				int length = lengthOf(header);
+				buffer.putInt(opOf(header) == POLYLINE_CONTINUED ? DrawCommandCodec.POLYLINE_CONTINUED : DrawCommandCodec.POLYLINE);
+				buffer.putInt(length);
+				for (int j = 1; j <= length; j++) {
+					buffer.putInt(unpackX(data[offset + j]));
+					buffer.putInt(unpackY(data[offset + j]));
+				}
+			}
+			out.end();
+		}
+		// 残りの命令を先頭から詰め直す（移動先は移動元より前なので、前から順に写せる）
+		int remaining = count - n;
+		chunk = 0;
+		used = 0;
+		count = 0;
+		for (int i = 0; i < remaining; i++) {
+			int start = starts[n + i];
+			int[] data = chunks[start >>> CHUNK_BITS];
+			int offset = start & CHUNK_MASK;
+			int length = recordLength(data[offset]);
+			int to = reserve(length);
+			System.arraycopy(data, offset, chunks[chunk], to, length);
+		}
+		releaseChunks();
+	}
+
+	// DrawCommandCodecの形式なら、命令オブジェクトを作らずに直接詰める
+	public void pushEncoded(CommandCodec codec, ByteBuffer buffer) {
+		if (!(codec instanceof DrawCommandCodec)) {
+			push(codec.decode(buffer));
+			return;
+		}
+		int drawable = indexOf(((DrawCommandCodec) codec).getDrawable());
+		int x = buffer.getInt();
+		if (x == DrawCommandCodec.POLYLINE || x == DrawCommandCodec.POLYLINE_CONTINUED) {
+			int length = buffer.getInt();
+			if (length <= 0 || length > PolylineCommand.MAX_POINTS) {
+				throw new IllegalArgumentException("頂点数が不正です: " + length);
+			}
+			int at = buffer.position();
+			for (int i = 0; i < length; i++) {
+				checkRange(buffer.getInt(at + i * 8), buffer.getInt(at + i * 8 + 4));
+			}
+			int offset = reserve(1 + length);
+			int[] data = chunks[chunk];
+			data[offset] = header(x == DrawCommandCodec.POLYLINE_CONTINUED ? POLYLINE_CONTINUED : POLYLINE, drawable, length);
+			for (int i = 1; i <= length; i++) {
+				data[offset + i] = pack(buffer.getInt(), buffer.getInt());
+			}
+			return;
+		}
+		int y = buffer.getInt();
+		checkRange(x, y);
+		int offset = reserve(2);
+		int[] data = chunks[chunk];
+		data[offset] = header(DRAW, drawable, 1);
+		data[offset + 1] = pack(x, y);
+	}
+
+	private void push(PolylineCommand polyline) {
+		int[] px = polyline.getXs();
+		int[] py = polyline.getYs();
+		for (int i = 0; i < px.length; i++) {
+			checkRange(px[i], py[i]);
+		}
+		int offset = reserve(1 + px.length);
+		int[] data = chunks[chunk];
+		data[offset] = header(polyline.isContinued() ? POLYLINE_CONTINUED : POLYLINE, indexOf(polyline.drawable), px.length);
+		for (int i = 0; i < px.length; i++) {
+			data[offset + 1 + i] = pack(px[i], py[i]);
+		}
+	}
+
+	private static void unpack(int[] data, int offset, int length, int[] xs, int[] ys) {
+		for (int i = 0; i < length; i++) {
+			xs[i] = unpackX(data[offset + i]);
+			ys[i] = unpackY(data[offset + i]);
+		}
+	}
+
+	// 使用中の塊より後ろは1つだけ残して解放する
+	private void releaseChunks() {
+		for (int i = chunk + 2; i < chunks.length && chunks[i] != null; i++) {
+			chunks[i] = null;
+		}
+	}
+
+	// 1命令が使うint数
+	private static int recordLength(int header) {
+		return opOf(header) == DRAW ? 2 : 1 + lengthOf(header);
+	}
+
+	// length個のintを確保し、その塊内の位置を返す
+	private int reserve(int length) {
+		if (used + length > CHUNK_SIZE) {
+			chunk++;
+			if (chunk == chunks.length) {
+				chunks = Arrays.copyOf(chunks, chunks.length * 2);
+			}
+			if (chunks[chunk] == null) {
+				chunks[chunk] = new int[CHUNK_SIZE];
+			}
+			used = 0;
+		}
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+		}
+		int offset = used;
+		starts[count++] = chunk << CHUNK_BITS | offset;
+		used += length;
+		return offset;
+	}
+
+	private int indexOf(Drawable drawable) {
+		for (int i = 0; i < drawableCount; i++) {
+			if (drawables[i] == drawable) {
+				return i;
+			}
+		}
+		if (drawableCount == 256) {
+			throw new IllegalStateException("描画対象が多すぎます。");
+		}
+		if (drawableCount == drawables.length) {
+			drawables = Arrays.copyOf(drawables, drawableCount * 2);
+		}
+		drawables[drawableCount] = drawable;
+		return drawableCount++;
+	}
+
+	static int header(int op, int drawable, int length) {
+		return op << 24 | drawable << 16 | length;
+	}
+
+	static int opOf(int header) {
+		return header >>> 24;
+	}
+
+	static int drawableOf(int header) {
+		return (header >>> 16) & 0xFF;
+	}
+
+	static int lengthOf(int header) {
+		return header & 0xFFFF;
+	}
+
+	// 16ビットに収まらない座標は詰めると別の座標になってしまうので受け付けない
+	private static void checkRange(int x, int y) {
+		if (x != (short) x || y != (short) y) {
+			throw new IllegalArgumentException("座標が範囲外です: (" + x + ", " + y + ")");
+		}
+	}
+
+	// 座標は16ビットずつ
+	static int pack(int x, int y) {
+		return x << 16 | (y & 0xFFFF);
+	}
+
+	static int unpackX(int packed) {
+		return packed >> 16;
+	}
+
+	static int unpackY(int packed) {
+		return (short) packed;
+	}
+}
@@ -0,0 +1,55 @@
+package drawer;
+
+import command.ContinuedCommand;
+import command.WeightedCommand;
+
+// 1本のストロークを折れ線としてまとめて描く
+// 頂点がMAX_POINTSを超えるストロークは複数の命令に分け、2つ目以降を続きの命令にする
+public class PolylineCommand implements ContinuedCommand, WeightedCommand {
+
+	// 1命令に含められる頂点数の上限
+	public static final int MAX_POINTS = 4096;
+
+	// 描画対象
+	protected Drawable drawable;
+	// 頂点の座標
+	private int[] xs;
+	private int[] ys;
+	// 直前の命令と同じストロークか
+	private boolean continued;
+
+	public PolylineCommand(Drawable drawable, int[] xs, int[] ys) {
+		this(drawable, xs, ys, false);
+	}
+
+	public PolylineCommand(Drawable drawable, int[] xs, int[] ys, boolean continued) {
+		if (xs.length != ys.length || xs.length == 0 || xs.length > MAX_POINTS) {
+			throw new IllegalArgumentException("頂点数が不正です: " + xs.length);
+		}
+		this.drawable = drawable;
+		this.xs = xs;
+		this.ys = ys;
+		this.continued = continued;
+	}
+
+	int[] getXs() {
+		return xs;
+	}
+
+	int[] getYs() {
+		return ys;
+	}
+
+	public boolean isContinued() {
+		return continued;
+	}
+
+	// 頂点ごとに線分を描くので、頂点数を手間とする
+	public int weight() {
+		return xs.length;
+	}
+
+	public void execute() {
+		drawable.drawPolyline(xs, ys, xs.length);
+	}
+}
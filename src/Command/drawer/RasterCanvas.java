@@ -0,0 +1,189 @@
+package drawer;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import command.Checkpointer;
+
+// 画面を使わずに画素配列へ直接描く
+// 点は行ごとの横一列の塗りつぶしにまとめて描き、変更のあった範囲を記録しておく
+public class RasterCanvas implements Drawable, Checkpointer<int[]> {
+
+	private final int width;
+	private final int height;
+	private final BufferedImage image;
+	private final int[] pixels;
+	private final int background;
+	private final int color;
+	private final int radius;
+	// 中心からの縦方向の距離ごとの横の半幅
+	private final int[] halfWidths;
+	// 変更のあった範囲（なければ minX > maxX）
+	private int minX;
+	private int minY;
+	private int maxX;
+	private int maxY;
+
+	public RasterCanvas(int width, int height, Color background, Color color, int radius) {
+		this.width = width;
+		this.height = height;
+		this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		this.background = background.getRGB();
+		this.color = color.getRGB();
+		this.radius = radius;
+		this.halfWidths = new int[radius * 2 + 1];
+		for (int dy = -radius; dy <= radius; dy++) {
+			halfWidths[dy + radius] = (int) Math.sqrt((double) radius * radius - dy * dy);
+		}
+		clear();
+	}
+
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	public void clear() {
+		Arrays.fill(pixels, background);
+		markDirty(0, 0, width - 1, height - 1);
+	}
+
+	public void draw(int x, int y) {
+		int top = Math.max(0, y - radius);
+		int bottom = Math.min(height - 1, y + radius);
+		for (int row = top; row <= bottom; row++) {
+			int half = halfWidths[row - y + radius];
+			int from = Math.max(0, x - half);
+			int to = Math.min(width, x + half + 1);
+			if (from < to) {
+				Arrays.fill(pixels, row * width + from, row * width + to, color);
+			}
+		}
+		markDirty(x - radius, y - radius, x + radius, y + radius);
+	}
+
+	// まとめて描く（同じ位置が続く点は1回だけ描く）
+	public void draw(int[] xs, int[] ys, int count) {
+		int lastX = Integer.MIN_VALUE;
+		int lastY = Integer.MIN_VALUE;
+		for (int i = 0; i < count; i++) {
+			if (xs[i] != lastX || ys[i] != lastY) {
+				draw(xs[i], ys[i]);
+				lastX = xs[i];
+				lastY = ys[i];
+			}
+		}
+	}
+
+	// 折れ線を点と同じ太さで描く
+	// 線分ごとに、点を線分に沿って動かした範囲（両端が丸い帯）を行ごとに1回の塗りつぶしで描く
+	public void drawPolyline(int[] xs, int[] ys, int count) {
+		if (count == 1) {
+			draw(xs[0], ys[0]);
+			return;
+		}
+		for (int i = 1; i < count; i++) {
+			drawSegment(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+		}
+	}
+
+	public void drawSegment(int ax, int ay, int bx, int by) {
+		int top = Math.max(0, Math.min(ay, by) - radius);
+		int bottom = Math.min(height - 1, Math.max(ay, by) + radius);
+		int dx = bx - ax;
+		int dy = by - ay;
+		long lengthSquared = (long) dx * dx + (long) dy * dy;
+		// 行ごとの帯の範囲は行番号の1次式になるので、係数を先に求めておく
+		// 線分からの距離: x - ax ∈ ry * slope ± halfWidth、射影: x - ax ∈ [-ry * inverse, end - ry * inverse]
+		double slope = dy != 0 ? (double) dx / dy : 0;
+		double halfWidth = dy != 0 ? radius * Math.sqrt(lengthSquared) / Math.abs(dy) : 0;
+		double inverse = dx != 0 ? (double) dy / dx : 0;
+		double end = dx != 0 ? (double) lengthSquared / dx : 0;
+		for (int row = top; row <= bottom; row++) {
+			int ry = row - ay;
+			int from = Integer.MAX_VALUE;
+			int to = Integer.MIN_VALUE;
+			// 両端の円
+			if (Math.abs(ry) <= radius) {
+				int half = halfWidths[ry + radius];
+				from = ax - half;
+				to = ax + half;
+			}
+			if (Math.abs(row - by) <= radius) {
+				int half = halfWidths[row - by + radius];
+				from = Math.min(from, bx - half);
+				to = Math.max(to, bx + half);
+			}
+			// 線分からの距離がradius以内で、線分の範囲内に射影される部分
+			boolean inside = lengthSquared > 0;
+			double left = Double.NEGATIVE_INFINITY;
+			double right = Double.POSITIVE_INFINITY;
+			if (dy != 0) {
+				left = ry * slope - halfWidth;
+				right = ry * slope + halfWidth;
+			} else {
+				inside &= Math.abs(ry) <= radius;
+			}
+			if (dx != 0) {
+				double p = -ry * inverse;
+				double q = end - ry * inverse;
+				left = Math.max(left, Math.min(p, q));
+				right = Math.min(right, Math.max(p, q));
+			} else {
+				inside &= (long) ry * dy >= 0 && (long) ry * dy <= lengthSquared;
+			}
+			if (inside && left <= right) {
+				int l = (int) left;
+				int r = (int) right;
+				from = Math.min(from, ax + (l < left ? l + 1 : l));
+				to = Math.max(to, ax + (r > right ? r - 1 : r));
+			}
+			from = Math.max(0, from);
+			to = Math.min(width - 1, to);
+			if (from <= to) {
+				Arrays.fill(pixels, row * width + from, row * width + to + 1, color);
+			}
+		}
+		markDirty(Math.min(ax, bx) - radius, Math.min(ay, by) - radius, Math.max(ax, bx) + radius, Math.max(ay, by) + radius);
+	}
+
+	// 前回の呼び出し以降に変更された範囲を返す（なければnull）
+	public Rectangle takeDirty() {
+		int left = Math.max(0, minX);
+		int top = Math.max(0, minY);
+		int right = Math.min(width - 1, maxX);
+		int bottom = Math.min(height - 1, maxY);
+		minX = Integer.MAX_VALUE;
+		minY = Integer.MAX_VALUE;
+		maxX = Integer.MIN_VALUE;
+		maxY = Integer.MIN_VALUE;
+		if (left > right || top > bottom) {
+			return null;
+		}
+		return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+	}
+
+	// 途中経過として画素をコピーする
+	public int[] save() {
+		return pixels.clone();
+	}
+
+	public void restore(int[] checkpoint) {
+		System.arraycopy(checkpoint, 0, pixels, 0, checkpoint.length);
+		markDirty(0, 0, width - 1, height - 1);
+	}
+
+	public long sizeOf(int[] checkpoint) {
+		return checkpoint.length * 4L;
+	}
+
+	private void markDirty(int left, int top, int right, int bottom) {
+		minX = Math.min(minX, left);
+		minY = Math.min(minY, top);
+		maxX = Math.max(maxX, right);
+		maxY = Math.max(maxY, bottom);
+	}
+}
@@ -0,0 +1,126 @@
+package drawer;
+
+import java.util.Arrays;
+
+import command.MacroCommand;
+
+// ドラッグ中の点を1本のストロークとして集め、離したときに間引いた折れ線として履歴へ追加する
+// 間引きにはDouglas-Peucker法を使い、許容誤差以内の頂点を取り除く
+public class StrokeCoalescer {
+
+	// 履歴
+	private MacroCommand history;
+	// 描画対象
+	private Drawable drawable;
+	// 許容誤差（画素）
+	private double tolerance;
+	// 集めている点
+	private int[] xs = new int[256];
+	private int[] ys = new int[256];
+	private int count;
+
+	public StrokeCoalescer(MacroCommand history, Drawable drawable, double tolerance) {
+		this.history = history;
+		this.drawable = drawable;
+		this.tolerance = tolerance;
+	}
+
+	// 点を追加し、前の点からの線分をすぐに描く
+	public void add(int x, int y) {
+		if (count > 0 && xs[count - 1] == x && ys[count - 1] == y) {
+			return;
+		}
+		if (count == xs.length) {
+			xs = Arrays.copyOf(xs, count * 2);
+			ys = Arrays.copyOf(ys, count * 2);
+		}
+		xs[count] = x;
+		ys[count] = y;
+		count++;
+		if (count == 1) {
+			drawable.draw(x, y);
+		} else {
+			drawable.drawSegment(xs[count - 2], ys[count - 2], x, y);
+		}
+	}
+
+	// ストロークを終え、履歴へ追加する
+	// 頂点がMAX_POINTSを超える場合は端点を共有する複数の命令に分け、2つ目以降を続きの命令にして1回で取り消せるようにする
+	public void end() {
+		if (count == 0) {
+			return;
+		}
+		boolean[] keep = simplify();
+		int[] kept = new int[count];
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (keep[i]) {
+				kept[n++] = i;
+			}
+		}
+		for (int from = 0; from < n; from += PolylineCommand.MAX_POINTS - 1) {
+			int to = Math.min(n, from + PolylineCommand.MAX_POINTS);
+			int[] px = new int[to - from];
+			int[] py = new int[to - from];
+			for (int i = from; i < to; i++) {
+				px[i - from] = xs[kept[i]];
+				py[i - from] = ys[kept[i]];
+			}
+			history.append(new PolylineCommand(drawable, px, py, from > 0));
+			if (to == n) {
+				break;
+			}
+		}
+		count = 0;
+	}
+
+	// 残す頂点に印を付ける
+	private boolean[] simplify() {
+		boolean[] keep = new boolean[count];
+		keep[0] = true;
+		keep[count - 1] = true;
+		// 未処理の区間 [始点, 終点] のスタック
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = count - 1;
+		double limit = tolerance * tolerance;
+		while (top > 0) {
+			int last = stack[--top];
+			int first = stack[--top];
+			int farthest = -1;
+			double max = limit;
+			for (int i = first + 1; i < last; i++) {
+				double d = distanceSquared(i, first, last);
+				if (d > max) {
+					max = d;
+					farthest = i;
+				}
+			}
+			if (farthest >= 0) {
+				keep[farthest] = true;
+				if (top + 4 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				stack[top++] = first;
+				stack[top++] = farthest;
+				stack[top++] = farthest;
+				stack[top++] = last;
+			}
+		}
+		return keep;
+	}
+
+	// 点iと、firstとlastを結ぶ線分との距離の2乗
+	private double distanceSquared(int i, int first, int last) {
+		double dx = xs[last] - xs[first];
+		double dy = ys[last] - ys[first];
+		double px = xs[i] - xs[first];
+		double py = ys[i] - ys[first];
+		double length = dx * dx + dy * dy;
+		double t = length == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / length));
+		double ex = px - t * dx;
+		double ey = py - t * dy;
+		return ex * ex + ey * ey;
+	}
+}